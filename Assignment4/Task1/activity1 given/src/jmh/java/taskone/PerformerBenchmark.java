@@ -0,0 +1,81 @@
+/**
+ * File : PerformerBenchmark.java
+ * Author : ndavispe
+ * Description : PerformerBenchmark class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class : PerformerBenchmark
+ * Description : cost of building the display/count/page responses
+ *
+ * <p>Measures the JSON construction and encoding the servers do per request, not the
+ * simulated 6 second add.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerformerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    StringList list;
+    Performer performer;
+
+    @Setup
+    public void fill() {
+        list = new StringList();
+        for (int i = 0; i < size; i++) {
+            list.add("s" + i);
+        }
+        performer = new Performer(list);
+    }
+
+    // display as the servers used to send it, JSON built and encoded per request
+    @Benchmark
+    public byte[] displayJson() {
+        return JsonUtils.toByteArray(performer.display());
+    }
+
+    // display from the per-snapshot cached bytes
+    @Benchmark
+    public byte[] displayBytes() {
+        return performer.displayBytes();
+    }
+
+    @Benchmark
+    public byte[] count() {
+        return JsonUtils.toByteArray(performer.count());
+    }
+
+    @Benchmark
+    public byte[] firstPage() {
+        return JsonUtils.toByteArray(performer.page(0, Performer.MAX_PAGE));
+    }
+
+    // request parsing side of a small add, what every frame pays before dispatch
+    @Benchmark
+    public JSONObject parseRequest() {
+        return new JSONObject("{\"selected\":1,\"data\":\"hello\"}");
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * File : StringListBenchmark.java
+ * Author : ndavispe
+ * Description : StringListBenchmark class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class : StringListBenchmark
+ * Description : StringList add/contains/toString cost at different list sizes
+ *
+ * <p>The list is shared by every benchmark thread, run with -t (e.g. -Pjmh="-t 64") to see
+ * how the operations behave under contention. bloom=true puts the BloomFilter in front of the
+ * index, compare containsMiss with and without it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringListBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean bloom;
+
+    StringList list;
+    // source of never seen strings for the insert benchmark
+    final AtomicLong fresh = new AtomicLong();
+
+    // rebuilt every iteration so addNew does not grow the list across the whole run
+    @Setup(Level.Iteration)
+    public void fill() {
+        list = new StringList(bloom);
+        for (int i = 0; i < size; i++) {
+            list.add("s" + i);
+        }
+        fresh.set(0);
+    }
+
+    // dedup path, the string is already in the list
+    @Benchmark
+    public void addDuplicate() {
+        list.add("s" + (size / 2));
+    }
+
+    // insert path, every call appends a new string
+    @Benchmark
+    public void addNew() {
+        list.add("new" + fresh.getAndIncrement());
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return list.contains("s" + (size - 1));
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return list.contains("missing");
+    }
+
+    // misses spread over the whole table, "missing" alone always probes the same cache line
+    @Benchmark
+    public boolean containsMissSpread() {
+        return list.contains("m" + fresh.getAndIncrement());
+    }
+
+    @Benchmark
+    public int size() {
+        return list.size();
+    }
+
+    // full rendering, bypasses the cached snapshot
+    @Benchmark
+    public String toStringFull() {
+        return list.toString(0, list.size());
+    }
+
+    // cached snapshot, only re-rendered after an add
+    @Benchmark
+    public String toStringSnapshot() {
+        return list.toString();
+    }
+}
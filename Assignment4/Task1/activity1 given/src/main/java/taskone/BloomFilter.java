@@ -0,0 +1,139 @@
+/**
+ * File : BloomFilter.java
+ * Author : ndavispe
+ * Description : BloomFilter class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Class : BloomFilter
+ * Description : Membership filter in front of a StringList's hash index
+ *
+ * <p>mightContain() false means the string was never put, so StringList.contains can answer a
+ * miss without touching the index. True means "maybe", about 1% of misses get that answer. The
+ * filter is blocked: all bits of a string sit in one 512 bit block (8 longs), so a lookup reads
+ * one block instead of k scattered words.
+ *
+ * <p>put() and grow() are only called by the list's single writer (under appendLock), lookups
+ * are lock free. Once full the filter is rebuilt at twice the size from the list itself.
+ */
+class BloomFilter {
+
+    // strings the first filter is sized for
+    static final int INITIAL_CAPACITY = 1 << 16;
+    // bits per string, 10 bits and 7 probes give roughly 1% false positives
+    static final int BITS_PER_ENTRY = 10;
+    static final int PROBES = 7;
+
+    private static final int BLOCK_LONGS = 8; // 512 bits, one cache line
+
+    private volatile Bits bits = new Bits(INITIAL_CAPACITY);
+
+    // lookup outcomes, see StringList.contains
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    // false if str was never put
+    boolean mightContain(String str) {
+        return bits.mightContain(mix(str.hashCode()));
+    }
+
+    // single writer, size is the number of strings put so far, entries(i) returns the i-th one
+    void put(String str, int size, IntFunction<String> entries) {
+        Bits current = bits;
+        if (size >= current.capacity) {
+            current = new Bits(current.capacity * 2);
+            for (int i = 0; i < size; i++) {
+                current.put(mix(entries.apply(i).hashCode()));
+            }
+            bits = current; // readers keep the old filter until the new one holds everything
+        }
+        current.put(mix(str.hashCode()));
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void falsePositive() {
+        falsePositives.increment();
+    }
+
+    // present and confirmed by the index
+    long hits() {
+        return hits.sum();
+    }
+
+    // answered by the filter alone
+    long misses() {
+        return misses.sum();
+    }
+
+    // filter said maybe, index said no
+    long falsePositives() {
+        return falsePositives.sum();
+    }
+
+    // spread String.hashCode over 64 bits (murmur3 finalizer)
+    private static long mix(int hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // bit array sized for capacity strings, a power of two number of blocks
+    private static final class Bits {
+        final int capacity;
+        final int blockMask;
+        final AtomicLongArray words;
+
+        Bits(int capacity) {
+            this.capacity = capacity;
+            long wanted = (long) capacity * BITS_PER_ENTRY / (64 * BLOCK_LONGS);
+            int blocks = Integer.highestOneBit((int) Math.max(1, Math.min(wanted, 1 << 24)) * 2 - 1);
+            this.blockMask = blocks - 1;
+            this.words = new AtomicLongArray(blocks * BLOCK_LONGS);
+        }
+
+        // the high half picks the block, the low half the probes inside it (double hashing)
+        boolean mightContain(long h) {
+            int base = ((int) (h >>> 32) & blockMask) * BLOCK_LONGS;
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 16) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                int bit = (h1 + i * h2) & 511;
+                if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // single writer, each word is written with a volatile set so readers see the bits
+        void put(long h) {
+            int base = ((int) (h >>> 32) & blockMask) * BLOCK_LONGS;
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 16) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                int bit = (h1 + i * h2) & 511;
+                int word = base + (bit >>> 6);
+                words.set(word, words.get(word) | (1L << bit));
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 /**
@@ -29,6 +30,10 @@ import org.json.JSONObject;
  */
 public class Client {
     private static BufferedReader stdin;
+    // named list every request goes to, empty for the shared default list
+    private static String namespace = "";
+    // payload encoding, switched to protobuf at connect time when asked for and supported
+    private static WireFormat format = WireFormat.JSON;
 
     /**
      * Function JSONObject add().
@@ -69,6 +74,118 @@ public class Client {
     }
 
 
+    /**
+     * Function JSONObject page().
+     */
+    public static JSONObject page() {
+        JSONObject paging = new JSONObject();
+        paging.put("offset", 0);
+        paging.put("limit", 100);
+        try {
+            System.out.print("Please input the page size (1-" + Performer.MAX_PAGE + "): ");
+            paging.put("limit", Integer.parseInt(stdin.readLine().trim()));
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Using page size 100");
+        }
+        JSONObject request = new JSONObject();
+        request.put("selected", 5);
+        request.put("data", paging);
+        return request;
+    }
+
+    /**
+     * Function JSONObject addBatch().
+     */
+    public static JSONObject addBatch() {
+        JSONArray strs = new JSONArray();
+        try {
+            System.out.print("Please input the strings, separated by commas: ");
+            for (String str : stdin.readLine().split(",")) {
+                strs.put(str.trim());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        JSONObject request = new JSONObject();
+        request.put("selected", 1); // same as add, but data is an array
+        request.put("data", strs);
+        return request;
+    }
+
+    /**
+     * Function JSONObject addAsync().
+     */
+    public static JSONObject addAsync() {
+        JSONObject request = add();
+        request.put("selected", 6);
+        return request;
+    }
+
+    /**
+     * Function JSONObject status().
+     */
+    public static JSONObject status() {
+        JSONObject request = new JSONObject();
+        request.put("selected", 7);
+        try {
+            System.out.print("Please input the ticket: ");
+            request.put("data", Long.parseLong(stdin.readLine().trim()));
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("[Ticket] must be an integer");
+            return null;
+        }
+        return request;
+    }
+
+    /**
+     * Function JSONObject metrics().
+     */
+    public static JSONObject metrics() {
+        JSONObject request = new JSONObject();
+        request.put("selected", 8);
+        request.put("data", "");
+        return request;
+    }
+
+    /**
+     * Function JSONObject contains().
+     */
+    public static JSONObject contains() {
+        String strToSend = null;
+        JSONObject request = new JSONObject();
+        request.put("selected", 11);
+        try {
+            System.out.print("Please input the string to look for: ");
+            strToSend = stdin.readLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        request.put("data", strToSend);
+        return request;
+    }
+
+    /**
+     * Function JSONObject ping().
+     */
+    public static JSONObject ping() {
+        JSONObject request = new JSONObject();
+        request.put("selected", 10);
+        request.put("data", "");
+        return request;
+    }
+
+    /**
+     * Function namespace(), switches the list the following requests work on.
+     */
+    public static void namespace() {
+        try {
+            System.out.print("Please input the namespace (empty for the default list): ");
+            namespace = stdin.readLine().trim();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Function JSONObject quit().
      */
@@ -87,10 +204,12 @@ public class Client {
         int port;
         Socket sock;
         stdin = new BufferedReader(new InputStreamReader(System.in));
+        // the frame cap protects servers, a display response may legitimately be bigger
+        NetworkUtils.setMaxFrameSize(Integer.MAX_VALUE);
         try {
-            if (args.length != 2) {
-                // gradle runClient -Phost=localhost -Pport=8000 -q --console=plain
-                System.out.println("Usage: gradle Client -Phost=localhost -Pport=8000");
+            if (args.length < 2 || args.length > 3) {
+                // gradle runClient -Phost=localhost -Pport=8000 -Pformat=protobuf -q --console=plain
+                System.out.println("Usage: gradle Client -Phost=localhost -Pport=8000 [-Pformat=json|protobuf]");
                 System.exit(0);
             }
 
@@ -103,18 +222,43 @@ public class Client {
                 System.exit(2);
             }
 
+            WireFormat wanted = args.length > 2 ? WireFormat.forName(args[2]) : WireFormat.JSON;
+            if (wanted == null) {
+                System.out.println("[Format] must be json or protobuf");
+                System.exit(2);
+            }
+
             sock = new Socket(host, port);
             OutputStream out = sock.getOutputStream();
             InputStream in = sock.getInputStream();
+            if (wanted != WireFormat.JSON) {
+                JSONObject answer = wanted.negotiate(out, in);
+                if (answer != null && answer.getString("type").equals("format")) {
+                    format = wanted;
+                } else {
+                    // older servers do not know the format request, json always works
+                    System.out.println("Server does not support " + args[2] + ", using json"
+                            + (answer != null && answer.has("error") ? " (" + answer.getString("error") + ")" : ""));
+                }
+            }
             Scanner input = new Scanner(System.in);
             int choice;
             do {
                 System.out.println();
                 System.out.println("Client Menu"); // updated to match ReadMe.md
-                System.out.println("Please select a valid option (1-5). 0 to diconnect the client");
+                System.out.println("Please select a valid option (1-12). 0 to diconnect the client");
                 System.out.println("1. add <string> - adds a string to the list and display it");
                 System.out.println("3. display - display the list");
                 System.out.println("4. count - returns the elements in the list");
+                System.out.println("5. page <size> - display the list a page at a time");
+                System.out.println("6. add async <string> - adds a string in the background, returns a ticket");
+                System.out.println("7. status <ticket> - checks whether an async add has finished");
+                System.out.println("8. add batch <s1,s2,...> - adds several strings in one request");
+                System.out.println("9. namespace <name> - work on a named list"
+                        + (namespace.isEmpty() ? "" : " (now: " + namespace + ")"));
+                System.out.println("10. metrics - server request counts, latencies and connections");
+                System.out.println("11. ping - keeps an idle connection open");
+                System.out.println("12. contains <string> - checks whether the list has a string");
                 System.out.println("0. quit");
                 System.out.println();
                 choice = input.nextInt(); // what if not int.. should error handle this
@@ -129,18 +273,51 @@ public class Client {
                     case (4): // updated to match ReadMe.md
                         request = count();
                         break;
+                    case (5):
+                        request = page();
+                        break;
+                    case (6):
+                        request = addAsync();
+                        break;
+                    case (7):
+                        request = status();
+                        break;
+                    case (8):
+                        request = addBatch();
+                        break;
+                    case (9):
+                        namespace();
+                        break;
+                    case (10):
+                        request = metrics();
+                        break;
+                    case (11):
+                        request = ping();
+                        break;
+                    case (12):
+                        request = contains();
+                        break;
                     case (0):
                         request = quit();
                         break;
                     default:
-                        System.out.println("Please select a valid option (1,3,4,0).");
+                        System.out.println("Please select a valid option (1,3,4,5,6,7,8,9,10,11,12,0).");
                         break;
                 }
                 if (request != null) {
+                    if (!namespace.isEmpty()) {
+                        request.put("namespace", namespace);
+                    }
                     System.out.println(request);
-                    NetworkUtils.send(out, JsonUtils.toByteArray(request));
+                    NetworkUtils.send(out, format.encodeRequest(request));
                     byte[] responseBytes = NetworkUtils.receive(in);
-                    JSONObject response = JsonUtils.fromByteArray(responseBytes);
+                    if (responseBytes.length == 0) {
+                        // e.g. the session sat idle too long and the server reaped it
+                        System.out.println("The server closed the connection");
+                        sock.close();
+                        System.exit(0);
+                    }
+                    JSONObject response = format.decodeResponse(responseBytes);
 
                     if (response.has("error")) {
                         System.out.println(response.getString("error"));
@@ -154,6 +331,26 @@ public class Client {
                         if (typeStr.equals("count")) {
                             int data = response.getInt("data");
                             System.out.println("data: " + data);
+                        } else if (typeStr.equals("page")) {
+                            // pages keep coming until the server says there are no more
+                            System.out.println("total: " + response.getInt("total"));
+                            System.out.println("data: " + response.getString("data"));
+                            while (response.getBoolean("more")) {
+                                response = format.decodeResponse(NetworkUtils.receive(in));
+                                System.out.println("data: " + response.getString("data"));
+                            }
+                        } else if (typeStr.equals("contains")) {
+                            System.out.println("data: " + response.getBoolean("data"));
+                        } else if (typeStr.equals("metrics")) {
+                            System.out.println("data: " + response.getJSONObject("data").toString(2));
+                        } else if (typeStr.equals("accepted")) {
+                            System.out.println("ticket: " + response.getLong("ticket"));
+                        } else if (typeStr.equals("status")) {
+                            System.out.println("ticket: " + response.getLong("ticket"));
+                            System.out.println("state: " + response.getString("state"));
+                            if (response.has("data")) {
+                                System.out.println("data: " + response.getString("data"));
+                            }
                         } else {
                             String data = response.getString("data");
                             System.out.println("data: " + data);
@@ -0,0 +1,136 @@
+/**
+ * File : ConnectBenchmark.java
+ * Author : ndavispe
+ * Description : ConnectBenchmark class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Class : ConnectBenchmark
+ * Description : Connections per second a taskone server can take
+ *
+ * <p>N threads are released together and each one connects, sends quit, waits for the answer
+ * and for the server to hang up, then connects again. This is what every client reconnecting
+ * after a failover looks like. It reports how many connections per second were answered, and
+ * the connect to answer latency, which includes the time spent in the accept backlog. The
+ * server closes first, so TIME_WAIT sockets pile up on the server and not in the benchmark's
+ * ephemeral ports.
+ */
+class ConnectBenchmark {
+
+    static String host;
+    static int port;
+    static volatile boolean running = true;
+
+    static final LatencyHistogram latency = new LatencyHistogram();
+    static final AtomicLong busy = new AtomicLong();
+    static final AtomicLong errors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        // Setup
+        int threads = 64;
+        int seconds = 30;
+
+        if (args.length < 2) {
+            // gradle runConnectBench -Phost=localhost -Pport=8000 -Pconnections=64 -Pduration=30
+            System.out.println("Usage: gradle runConnectBench -Phost=localhost -Pport=8000 "
+                    + "-Pconnections=64 -Pduration=30");
+            System.exit(1);
+        }
+        host = args[0];
+        try {
+            port = Integer.parseInt(args[1]);
+            if (args.length > 2) {
+                threads = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                seconds = Integer.parseInt(args[3]);
+            }
+        } catch (NumberFormatException nfe) {
+            System.out.println("[Port], [Connections] and [Duration] must be integers");
+            System.exit(2);
+        }
+
+        System.out.println("Connect: " + threads + " concurrent connects for " + seconds + "s");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await(); // everybody reconnects at once
+                    reconnect();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "connect-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        TimeUnit.SECONDS.sleep(seconds);
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        long answered = latency.count();
+        System.out.println();
+        System.out.println("Connect to answer latency (us):");
+        System.out.println("  " + latency);
+        System.out.printf("Connections: %.1f conn/s (%d answered in %.1fs)%n", answered / elapsed, answered, elapsed);
+        System.out.println("Errors: " + errors.get() + " busy: " + busy.get());
+    }
+
+    // connect, quit, wait for the server to hang up, repeat
+    static void reconnect() throws InterruptedException {
+        JSONObject quit = new JSONObject();
+        quit.put("selected", 0);
+        quit.put("data", "");
+        byte[] request = JsonUtils.toByteArray(quit);
+
+        while (running) {
+            long began = System.nanoTime();
+            try (Socket sock = new Socket(host, port)) {
+                sock.setTcpNoDelay(true);
+                OutputStream out = sock.getOutputStream();
+                InputStream in = sock.getInputStream();
+                NetworkUtils.send(out, request);
+                byte[] responseBytes = NetworkUtils.receive(in);
+                if (responseBytes.length == 0) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+                long answeredAt = System.nanoTime();
+                JSONObject response = JsonUtils.fromByteArray(responseBytes);
+                if (response.has("retryAfter")) {
+                    busy.incrementAndGet(); // accepted but turned away by admission control
+                    TimeUnit.MILLISECONDS.sleep(response.getLong("retryAfter"));
+                    continue;
+                }
+                latency.record(TimeUnit.NANOSECONDS.toMicros(answeredAt - began));
+                while (in.read() != -1) {
+                    // let the server close first
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                LoadGenerator.sleepQuietly(100);
+            }
+        }
+    }
+}
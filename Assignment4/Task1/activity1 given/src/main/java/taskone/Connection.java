@@ -0,0 +1,148 @@
+/**
+ * File : Connection.java
+ * Author : ndavispe
+ * Description : Connection class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Class : Connection
+ * Description : Request loop of one client connection, shared by the blocking servers
+ *
+ * <p>Server, ThreadedServer, ThreadedPoolServer and VirtualThreadServer only differ in how they
+ * accept connections and which thread runs this loop. It reads a frame, answers the connection
+ * level requests (quit, paged display, format) itself and hands everything else to the Performer.
+ * Requests are bracketed with Session.enter() / exit() for the idle reaper and the drain.
+ *
+ * <p>With concurrent set, pipelined requests (see Pipeline) run alongside each other and are
+ * answered as they finish, otherwise they are answered in order like any other request.
+ */
+class Connection implements Runnable {
+
+    private final Socket conn;
+    private final Performer performer;
+    private final String server; // name of the server in log lines
+    private final boolean concurrent;
+
+    Connection(Socket conn, Performer performer, String server, boolean concurrent) {
+        this.conn = conn;
+        this.performer = performer;
+        this.server = server;
+        this.concurrent = concurrent;
+    }
+
+    @Override
+    public void run() {
+        boolean quit = false;
+        boolean entered = false; // a request is between Session.enter and Session.exit
+        ServerMetrics.connected();
+        Session session = Session.open(conn); // reaped once idle for -Didle.timeout
+
+        // attempt to establish input/output connection
+        try (OutputStream out = conn.getOutputStream(); InputStream in = conn.getInputStream();
+                FrameCodec codec = new FrameCodec(in, out)) {
+            Log.debug("Server connected to client : " + server);
+            Pipeline pipeline = concurrent ? new Pipeline(performer, codec, session) : null;
+
+            while (!quit) {
+                Request message = codec.receive(); // reuses the connection's read buffer
+                if (message == null) {
+                    break; // client went away without quit
+                }
+                if (!session.enter()) {
+                    if (!session.isReaped()) {
+                        // shutting down, the client retries this request against the next server
+                        codec.send(codec.encode(Pipeline.tag(message, Drain.rejection())));
+                    }
+                    break;
+                }
+                long started = System.nanoTime();
+                if (pipeline != null && Pipeline.isPipelined(message)) {
+                    // answered out of order, tagged with the request id (the pipeline exits the session)
+                    pipeline.submit(message);
+                    continue;
+                }
+                entered = true;
+                quit = answer(message, codec, pipeline);
+                ServerMetrics.record(message.selected, started);
+                entered = false;
+                session.exit();
+            }
+            if (Log.DEBUG) {
+                Log.debug("Client disconnected : " + NetworkUtils.metrics());
+            }
+        } catch (IOException | InterruptedException e) {
+            if (session.isReaped()) {
+                Log.debug("Closed idle session : " + conn.getRemoteSocketAddress());
+            } else if (!Drain.draining) {
+                e.printStackTrace(); // while draining, idle sockets are closed on purpose
+            }
+        } finally {
+            if (entered) {
+                session.exit(); // the request failed before it was answered
+            }
+            session.end();
+            ServerMetrics.disconnected();
+        }
+    }
+
+    // answer one request in order, true if it was quit
+    private boolean answer(Request message, FrameCodec codec, Pipeline pipeline)
+            throws IOException, InterruptedException {
+        boolean quit = false;
+        JSONObject returnMessage = null;
+        byte[] output = null; // set when a response is already encoded
+
+        try {
+            // only the connection level requests are handled here, the rest by Performer
+            switch (message.selected) {
+                case (5): // handle Paged Display, every page but the last is sent here
+                    Performer target = performer.namespace(message); // list picked by the request
+                    Request.Page paging = message.page();
+                    int limit = paging.limit;
+                    returnMessage = target.page(paging.offset, limit);
+                    while (returnMessage.optBoolean("more")) {
+                        codec.send(codec.encode(Pipeline.tag(message, returnMessage)));
+                        returnMessage = target.page(returnMessage.getInt("next"), limit);
+                    }
+                    break;
+                case (9): // handle Format, later frames use the new wire format
+                    if (pipeline != null) {
+                        pipeline.drain(); // pipelined requests are answered in the old one
+                    }
+                    output = codec.negotiate(message);
+                    break;
+                case (0): // handle Quit
+                    if (pipeline != null) {
+                        pipeline.drain(); // answer pipelined requests before quitting
+                    }
+                    returnMessage = performer.quit();
+                    quit = true;
+                    break;
+                default: // add, display, count, async add, status, metrics, ping, contains
+                    output = performer.respond(message, codec.format());
+                    break;
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+            returnMessage = Performer.error("Invalid request: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            returnMessage = Performer.error("Server error: " + e.getMessage()); // list closed
+        }
+
+        if (output == null) {
+            output = codec.encode(Pipeline.tag(message, returnMessage));
+        }
+        codec.send(output);
+        return quit;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * File : Drain.java
+ * Author : ndavispe
+ * Description : Drain class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+
+/**
+ * Class : Drain
+ * Description : Graceful shutdown for the blocking servers
+ *
+ * <p>On JVM shutdown (SIGTERM, ctrl-c) the installed hook stops accepting and waits, up to
+ * -Ddrain.timeout seconds, for every request that was already read to be answered and for
+ * every accepted async add to be applied. Then it closes the remaining (idle) connections and
+ * flushes the lists before the process exits. Requests read once the drain started are answered
+ * with a busy error, so clients retry them against the next instance instead of losing them.
+ *
+ * <p>Connection handlers bracket every request with Session.enter() / exit().
+ */
+class Drain {
+
+    // longest the hook waits for in-flight requests and async adds, -Ddrain.timeout=<seconds>
+    static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(Long.getLong("drain.timeout", 30));
+    // retry hint sent with requests turned away while draining
+    static final long RETRY_AFTER_MS = 1000;
+
+    static volatile boolean draining = false;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final Object idle = new Object();
+
+    // start a request, false when draining (the caller answers with rejection() and hangs up)
+    static boolean enter() {
+        inFlight.incrementAndGet();
+        if (draining) {
+            exit();
+            return false;
+        }
+        return true;
+    }
+
+    // a request entered with enter() has been answered
+    static void exit() {
+        if (inFlight.decrementAndGet() == 0 && draining) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    // busy answer for a request that arrived while draining
+    static JSONObject rejection() {
+        JSONObject busy = Performer.error("server shutting down, retry after " + RETRY_AFTER_MS + " ms");
+        busy.put("retryAfter", RETRY_AFTER_MS);
+        return busy;
+    }
+
+    // drain on shutdown, queued runs right after accepting stopped (e.g. to turn away queued clients)
+    static void install(Closeable server, Performer performer, Runnable queued) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> drain(server, performer, queued), "drain"));
+    }
+
+    private static void drain(Closeable server, Performer performer, Runnable queued) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        System.out.println("Draining : " + inFlight.get() + " requests in flight, "
+                + Session.openCount() + " connections");
+        draining = true;
+        try {
+            server.close(); // the accept loops end
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (queued != null) {
+            queued.run();
+        }
+
+        boolean finished = true;
+        try {
+            synchronized (idle) {
+                long left;
+                while (inFlight.get() > 0 && (left = deadline - System.currentTimeMillis()) > 0) {
+                    idle.wait(left);
+                }
+            }
+            finished = inFlight.get() == 0;
+
+            // idle connections are blocked in receive, closing the socket ends them
+            int closed = Session.closeAll();
+
+            boolean applied = performer.close(Math.max(0, deadline - System.currentTimeMillis()));
+            System.out.println("Drained : " + (finished ? "all requests answered" : inFlight.get() + " requests cut off")
+                    + ", " + (applied ? "all async adds applied" : "async adds left unapplied")
+                    + ", " + closed + " connections closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Drain could not flush the lists : " + e.getMessage());
+        }
+    }
+}
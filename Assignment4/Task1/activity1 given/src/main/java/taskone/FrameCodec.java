@@ -0,0 +1,144 @@
+/**
+ * File : FrameCodec.java
+ * Author : ndavispe
+ * Description : FrameCodec class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.json.JSONObject;
+
+/**
+ * Class : FrameCodec
+ * Description : Allocation light framing for one blocking connection
+ *
+ * <p>Same wire format as NetworkUtils (4 byte big endian length + payload), but the read and
+ * write buffers belong to the connection and are reused for every frame. Header and payload
+ * go out in a single write call. Buffers come from a shared pool and are handed back on
+ * close(), so short lived connections do not allocate either.
+ */
+class FrameCodec implements AutoCloseable {
+
+    static final int INITIAL_BUFFER = 4096;
+    // returned buffers larger than this are dropped instead of pooled
+    static final int MAX_POOLED_BUFFER = 64 * 1024;
+    static final int MAX_POOLED = 256;
+
+    private static final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    private final InputStream in;
+    private final OutputStream out;
+    private ByteBuffer readBuffer; // reader thread only
+    private ByteBuffer writeBuffer; // guarded by this
+    private volatile WireFormat format = WireFormat.JSON; // payload encoding, see negotiate
+
+    FrameCodec(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+        this.readBuffer = borrow(INITIAL_BUFFER);
+        this.writeBuffer = borrow(INITIAL_BUFFER);
+    }
+
+    /**
+     * Receive the next request, null if the peer closed the connection between frames.
+     * A frame cut short (header or body) is counted as truncated and throws EOFException.
+     */
+    Request receive() throws IOException {
+        int headerReads = NetworkUtils.readHeader(in, readBuffer.array());
+        if (headerReads < 0) {
+            return null;
+        }
+        int length = readBuffer.getInt(0);
+        NetworkUtils.checkFrameLength(length);
+        if (readBuffer.capacity() < length) {
+            readBuffer = grow(readBuffer, length);
+        }
+        int bodyReads = NetworkUtils.readFully(in, readBuffer.array(), length);
+        if (bodyReads < 0) {
+            NetworkUtils.frameTruncated();
+            throw new EOFException("Connection closed in the middle of a frame");
+        }
+        NetworkUtils.frameReceived(headerReads > 1 || bodyReads > 1);
+        return format.decodeRequest(readBuffer.array(), length);
+    }
+
+    /**
+     * Encode a response in the connection's current format.
+     */
+    byte[] encode(JSONObject response) {
+        return format.encodeResponse(response);
+    }
+
+    WireFormat format() {
+        return format;
+    }
+
+    /**
+     * Answer a format request (9) and switch the connection to the requested format.
+     * The answer itself is still encoded in the old format. Callers make sure no pipelined
+     * request is running, those would otherwise be answered in either format.
+     */
+    byte[] negotiate(Request message) {
+        JSONObject response = Performer.format(message.optText());
+        byte[] output = encode(Pipeline.tag(message, response));
+        if (!response.has("error")) {
+            format = WireFormat.forName(response.getString("data"));
+        }
+        return output;
+    }
+
+    /**
+     * send the bytes as one frame, safe to call from several threads.
+     */
+    synchronized void send(byte... bytes) throws IOException {
+        if (writeBuffer == null) {
+            throw new IOException("Connection closed");
+        }
+        int size = 4 + bytes.length;
+        if (writeBuffer.capacity() < size) {
+            writeBuffer = grow(writeBuffer, size);
+        }
+        writeBuffer.clear();
+        writeBuffer.putInt(bytes.length);
+        writeBuffer.put(bytes);
+        out.write(writeBuffer.array(), 0, size);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        release(readBuffer);
+        release(writeBuffer);
+        readBuffer = null;
+        writeBuffer = null;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int size) {
+        release(buffer);
+        return ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+    }
+
+    private static ByteBuffer borrow(int size) {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null || buffer.capacity() < size) {
+            return ByteBuffer.allocate(size);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    // size() is O(n) on the queue but only runs on connection close
+    private static void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() <= MAX_POOLED_BUFFER && pool.size() < MAX_POOLED) {
+            pool.add(buffer);
+        }
+    }
+}
@@ -14,8 +14,13 @@ import org.json.JSONObject;
  */
 public class JsonUtils {
     public static JSONObject fromByteArray(byte[] bytes) {
-        String jsonString = new String(bytes);
-        System.out.println(jsonString);
+        return fromByteArray(bytes, bytes.length);
+    }
+
+    // parse the first length bytes, lets callers reuse one buffer for every frame
+    public static JSONObject fromByteArray(byte[] bytes, int length) {
+        String jsonString = new String(bytes, 0, length);
+        Log.debug(jsonString); // payloads only with -Dlog.level=debug
         return new JSONObject(jsonString);
     }
 
@@ -0,0 +1,101 @@
+/**
+ * File : LatencyHistogram.java
+ * Author : ndavispe
+ * Description : LatencyHistogram class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class : LatencyHistogram
+ * Description : Lock free latency histogram (HDR style log-linear buckets)
+ *
+ * <p>Values below 128 get their own bucket, above that every power of two is split into 64
+ * buckets, so any recorded value is reported within about 1.5% using a fixed ~30KB array.
+ * Safe to record from many threads at once.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS; // 64
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT + SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value (any unit, callers use microseconds), negatives count as 0.
+     */
+    void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(index(v));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    long mean() {
+        long n = total.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Value at or below which the given fraction (0.0 - 1.0) of recordings fall.
+     */
+    long percentile(double fraction) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Summary line, e.g. "n=10 mean=5 p50=4 p99=9 p999=9 max=9".
+     */
+    public String toString() {
+        return "n=" + count() + " mean=" + mean() + " p50=" + percentile(0.50)
+                + " p99=" + percentile(0.99) + " p999=" + percentile(0.999) + " max=" + max();
+    }
+
+    // values < 128 map to themselves, above that to (magnitude, top 7 bits)
+    private static int index(long v) {
+        if (v < 2 * SUB_COUNT) {
+            return (int) v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (v >>> shift);
+    }
+
+    // largest value that lands in bucket i
+    private static long highestValue(int i) {
+        if (i < 2 * SUB_COUNT) {
+            return i;
+        }
+        int shift = i / SUB_COUNT - 1;
+        long mantissa = i - (long) shift * SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
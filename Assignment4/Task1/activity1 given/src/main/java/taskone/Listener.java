@@ -0,0 +1,132 @@
+/**
+ * File : Listener.java
+ * Author : ndavispe
+ * Description : Listener class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Class : Listener
+ * Description : Listening socket(s) and acceptor thread(s) of the blocking servers
+ *
+ * <p>With -Dacceptors=N several threads accept at once and hand connections to the server's
+ * workers, so a connection storm (e.g. every client reconnecting after a failover) is taken off
+ * the accept queue quickly. Where SO_REUSEPORT is supported (Linux) every acceptor listens on
+ * its own socket bound to the same port and the kernel spreads new connections over them,
+ * otherwise the acceptors share one socket. The accept backlog is -Daccept.backlog (the JDK
+ * default is 50), so a burst waits in the kernel instead of being refused.
+ */
+class Listener implements Closeable {
+
+    // acceptor threads, -Dacceptors=<n>
+    static final int ACCEPTORS = Math.max(1, Integer.getInteger("acceptors", 1));
+    // pending connections per listening socket, -Daccept.backlog=<n>
+    static final int BACKLOG = Integer.getInteger("accept.backlog", 1024);
+
+    private final List<ServerSocket> sockets = new ArrayList<>();
+    private final int acceptors;
+    private final AtomicLong accepted = new AtomicLong();
+
+    Listener(int port) throws IOException {
+        this(port, ACCEPTORS);
+    }
+
+    Listener(int port, int acceptors) throws IOException {
+        this.acceptors = acceptors;
+        int count = acceptors > 1 && reusePortSupported() ? acceptors : 1;
+        try {
+            for (int i = 0; i < count; i++) {
+                ServerSocket socket = new ServerSocket();
+                if (count > 1) {
+                    socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                socket.bind(new InetSocketAddress(port), BACKLOG);
+                sockets.add(socket);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        ServerMetrics.gauge("accepted", accepted::get);
+    }
+
+    private static boolean reusePortSupported() {
+        try (ServerSocket probe = new ServerSocket()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // e.g. "2 acceptors on 2 SO_REUSEPORT sockets", for the startup line
+    String describe() {
+        return acceptors + (acceptors == 1 ? " acceptor" : " acceptors")
+                + (sockets.size() > 1 ? " on " + sockets.size() + " SO_REUSEPORT sockets" : "");
+    }
+
+    long accepted() {
+        return accepted.get();
+    }
+
+    // accept on every acceptor until the listener is closed (drain), handoff runs on the acceptor
+    void serve(Consumer<Socket> handoff) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i < acceptors; i++) {
+            ServerSocket socket = sockets.get(i % sockets.size());
+            Thread thread = new Thread(() -> accept(socket, handoff), "acceptor-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        accept(sockets.get(0), handoff); // the calling thread is acceptor 0
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void accept(ServerSocket socket, Consumer<Socket> handoff) {
+        while (true) {
+            Log.debug("Accepting a Request...");
+            Socket conn;
+            try {
+                // accept() blocks until connection is made
+                conn = socket.accept();
+            } catch (IOException e) {
+                if (socket.isClosed()) {
+                    return; // closed by the drain hook, which takes it from here
+                }
+                e.printStackTrace(); // e.g. out of file descriptors, keep serving the others
+                continue;
+            }
+            accepted.incrementAndGet();
+            handoff.accept(conn);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failed = null;
+        for (ServerSocket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                failed = e;
+            }
+        }
+        if (failed != null) {
+            throw failed;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * File : LoadGenerator.java
+ * Author : ndavispe
+ * Description : LoadGenerator class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Class : LoadGenerator
+ * Description : Headless closed loop load generator for the taskone servers
+ *
+ * <p>Opens N connections, each on its own thread, and keeps exactly one request in flight per
+ * connection: send, wait for the response, record the latency, send the next one. Requests are
+ * drawn from an add/display/count/contains mix. Works against Server, ThreadedServer,
+ * ThreadedPoolServer, VirtualThreadServer and NioServer, since they all speak the same protocol.
+ */
+class LoadGenerator {
+
+    // operations in mix order and their selected codes (see README.md)
+    static final String[] OPS = { "add", "display", "count", "contains" };
+    static final int[] SELECTED = { 1, 3, 4, 11 };
+
+    // add strings are drawn from this many keys so some adds are duplicates
+    static final int ADD_KEYS = 100000;
+    // contains looks in 10x the add keys, so most lookups are misses
+    static final int CONTAINS_KEYS = ADD_KEYS * 10;
+
+    static String host;
+    static int port;
+    static int[] mix = new int[OPS.length]; // cumulative weights
+    static int namespaces = 0; // connections spread over this many named lists, 0 for the default
+    static WireFormat format = WireFormat.JSON; // payload encoding every connection asks for
+    static volatile boolean running = true;
+
+    static final LatencyHistogram[] latency = new LatencyHistogram[OPS.length];
+    static final AtomicLong errors = new AtomicLong();
+    static final AtomicLong busy = new AtomicLong();
+    static final AtomicLong reconnects = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        // Setup
+        int connections = 10;
+        int seconds = 30;
+        String mixArg = "add=10,display=45,count=45";
+
+        if (args.length < 2) {
+            // gradle runLoad -Phost=localhost -Pport=8000 -Pconnections=10 -Pduration=30 -Pmix=...
+            System.out.println("Usage: gradle runLoad -Phost=localhost -Pport=8000 "
+                    + "-Pconnections=10 -Pduration=30 -Pmix=add=10,display=45,count=45 -Pnamespaces=0 "
+                    + "-Pformat=json");
+            System.exit(1);
+        }
+        host = args[0];
+        try {
+            port = Integer.parseInt(args[1]);
+            if (args.length > 2) {
+                connections = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                seconds = Integer.parseInt(args[3]);
+            }
+            if (args.length > 5) {
+                namespaces = Integer.parseInt(args[5]);
+            }
+        } catch (NumberFormatException nfe) {
+            System.out.println("[Port], [Connections], [Duration] and [Namespaces] must be integers");
+            System.exit(2);
+        }
+        if (args.length > 4) {
+            mixArg = args[4];
+        }
+        parseMix(mixArg);
+        if (args.length > 6) {
+            format = WireFormat.forName(args[6]);
+            if (format == null) {
+                System.out.println("[Format] must be json or protobuf");
+                System.exit(2);
+            }
+        }
+
+        // responses come from a trusted server and display can be larger than a request frame
+        NetworkUtils.setMaxFrameSize(Integer.MAX_VALUE);
+        for (int i = 0; i < OPS.length; i++) {
+            latency[i] = new LatencyHistogram();
+        }
+
+        System.out.println("Load: " + connections + " connections for " + seconds + "s, mix " + mixArg
+                + (namespaces > 0 ? ", " + namespaces + " namespaces" : "") + ", " + format.name().toLowerCase());
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            String namespace = namespaces > 0 ? "load" + (i % namespaces) : "";
+            Thread worker = new Thread(() -> runConnection(namespace), "load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        report(elapsed);
+    }
+
+    // "add=10,display=45,count=45" to cumulative weights
+    static void parseMix(String mixArg) {
+        int[] weights = new int[OPS.length];
+        for (String part : mixArg.split(",")) {
+            String[] kv = part.trim().split("=");
+            boolean known = false;
+            for (int i = 0; i < OPS.length; i++) {
+                if (OPS[i].equals(kv[0].trim()) && kv.length == 2) {
+                    weights[i] = Integer.parseInt(kv[1].trim());
+                    known = true;
+                }
+            }
+            if (!known) {
+                System.out.println("[Mix] must look like add=10,display=45,count=45");
+                System.exit(2);
+            }
+        }
+        int sum = 0;
+        for (int i = 0; i < OPS.length; i++) {
+            sum += weights[i];
+            mix[i] = sum;
+        }
+        if (sum <= 0) {
+            System.out.println("[Mix] needs at least one positive weight");
+            System.exit(2);
+        }
+    }
+
+    // one closed loop connection, reconnects if the server drops or rejects it
+    static void runConnection(String namespace) {
+        while (running) {
+            try (Socket sock = new Socket(host, port)) {
+                sock.setTcpNoDelay(true);
+                OutputStream out = sock.getOutputStream();
+                InputStream in = sock.getInputStream();
+                if (format != WireFormat.JSON) {
+                    JSONObject answer = format.negotiate(out, in);
+                    if (answer == null || !answer.getString("type").equals("format")) {
+                        if (answer != null && answer.has("retryAfter")) {
+                            busy.incrementAndGet();
+                            TimeUnit.MILLISECONDS.sleep(answer.getLong("retryAfter"));
+                        } else {
+                            errors.incrementAndGet();
+                            sleepQuietly(100);
+                        }
+                        continue; // server busy or without the format, try again
+                    }
+                }
+                while (running) {
+                    int op = pickOp();
+                    JSONObject request = new JSONObject();
+                    request.put("selected", SELECTED[op]);
+                    request.put("data", key(op));
+                    if (!namespace.isEmpty()) {
+                        request.put("namespace", namespace);
+                    }
+
+                    long sent = System.nanoTime();
+                    NetworkUtils.send(out, format.encodeRequest(request));
+                    byte[] responseBytes = NetworkUtils.receive(in);
+                    if (responseBytes.length == 0) {
+                        break; // server closed the connection
+                    }
+                    JSONObject response = format.decodeResponse(responseBytes);
+                    latency[op].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent));
+
+                    if (response.has("retryAfter")) {
+                        // admission control turned us away, back off as told
+                        busy.incrementAndGet();
+                        TimeUnit.MILLISECONDS.sleep(response.getLong("retryAfter"));
+                        break;
+                    }
+                    if (response.has("error")) {
+                        errors.incrementAndGet();
+                    }
+                }
+                if (running) {
+                    reconnects.incrementAndGet();
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                sleepQuietly(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // request data for an operation
+    static String key(int op) {
+        if (op == 0) {
+            return "load" + ThreadLocalRandom.current().nextInt(ADD_KEYS);
+        }
+        if (op == 3) {
+            return "load" + ThreadLocalRandom.current().nextInt(CONTAINS_KEYS);
+        }
+        return "";
+    }
+
+    static int pickOp() {
+        int roll = ThreadLocalRandom.current().nextInt(mix[mix.length - 1]);
+        for (int i = 0; i < mix.length; i++) {
+            if (roll < mix[i]) {
+                return i;
+            }
+        }
+        return mix.length - 1;
+    }
+
+    static void report(double elapsed) {
+        long total = 0;
+        System.out.println();
+        System.out.println("Latency (us) per operation:");
+        for (int i = 0; i < OPS.length; i++) {
+            total += latency[i].count();
+            System.out.printf("  %-8s %s%n", OPS[i], latency[i]);
+        }
+        System.out.printf("Throughput: %.1f req/s (%d requests in %.1fs)%n", total / elapsed, total, elapsed);
+        System.out.println("Errors: " + errors.get() + " busy: " + busy.get() + " reconnects: " + reconnects.get());
+    }
+
+    static void sleepQuietly(long ms) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * File : Log.java
+ * Author : ndavispe
+ * Description : Log class in package taskone
+ */
+
+package taskone;
+
+/**
+ * Class : Log
+ * Description : Console logging with a level switch
+ *
+ * <p>Per request and per connection messages (payloads, connects, disconnects) are debug
+ * output and only printed with -Dlog.level=debug, so a server under load does no console I/O.
+ * Startup messages and errors are still printed directly.
+ */
+class Log {
+
+    // set once at startup, -Dlog.level=debug|info (default info)
+    static final boolean DEBUG = "debug".equalsIgnoreCase(System.getProperty("log.level", "info"));
+
+    // print a debug message, build expensive messages under "if (Log.DEBUG)" instead
+    static void debug(String message) {
+        if (DEBUG) {
+            System.out.println(message);
+        }
+    }
+}
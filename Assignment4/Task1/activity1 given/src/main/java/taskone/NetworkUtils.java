@@ -6,9 +6,12 @@
 
 package taskone;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
 
 /**
  * Class: NetworkUtils 
@@ -31,45 +34,141 @@ public class NetworkUtils {
      * send the bytes on the stream.
      */
     public static void send(OutputStream out, byte... bytes) throws IOException {
-        out.write(intToBytes(bytes.length));
-        out.write(bytes);
+        // header and payload in one write, two small writes trip Nagle + delayed ACK (~40ms)
+        byte[] frame = new byte[4 + bytes.length];
+        System.arraycopy(intToBytes(bytes.length), 0, frame, 0, 4);
+        System.arraycopy(bytes, 0, frame, 4, bytes.length);
+        out.write(frame);
         out.flush();
     }
 
-    // read the bytes on the stream
-    private static byte[] read(InputStream in, int length) throws IOException {
-        byte[] bytes = new byte[length];
-        int bytesRead = 0;
-        try {
-            bytesRead = in.read(bytes, 0, length);
-        } catch (IOException e1) {
-            e1.printStackTrace();
+    // largest frame receive() accepts, -Dframe.max=<bytes> or setMaxFrameSize()
+    private static volatile int maxFrameSize = Integer.getInteger("frame.max", 1 << 20);
+
+    // decoder metrics, shared by every connection in the process
+    private static final AtomicLong framesReceived = new AtomicLong();
+    private static final AtomicLong partialFrames = new AtomicLong(); // needed more than one read
+    private static final AtomicLong truncatedFrames = new AtomicLong(); // stream ended mid frame
+    private static final AtomicLong oversizedFrames = new AtomicLong(); // over maxFrameSize
+
+    public static int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public static void setMaxFrameSize(int bytes) {
+        maxFrameSize = bytes;
+    }
+
+    /**
+     * Check a frame length header, throws if the frame can not be accepted.
+     */
+    public static void checkFrameLength(int length) throws IOException {
+        if (length < 0 || length > maxFrameSize) {
+            oversizedFrames.incrementAndGet();
+            throw new IOException("Frame of " + length + " bytes exceeds max of " + maxFrameSize);
+        }
+    }
+
+    // count a completed frame, partial when its header or body took more than one read
+    static void frameReceived(boolean partial) {
+        framesReceived.incrementAndGet();
+        if (partial) {
+            partialFrames.incrementAndGet();
         }
+    }
+
+    // count a frame whose stream ended before it was complete
+    static void frameTruncated() {
+        truncatedFrames.incrementAndGet();
+    }
+
+    /**
+     * Decoder metrics as a single line.
+     */
+    public static String metrics() {
+        return "frames=" + framesReceived.get() + " partial=" + partialFrames.get()
+                + " truncated=" + truncatedFrames.get() + " oversized=" + oversizedFrames.get();
+    }
 
-        if (bytesRead != length) {
-            return null;
+    /**
+     * Decoder metrics as a json object (for the metrics request).
+     */
+    public static JSONObject frameMetrics() {
+        JSONObject json = new JSONObject();
+        json.put("received", framesReceived.get());
+        json.put("partial", partialFrames.get());
+        json.put("truncated", truncatedFrames.get());
+        json.put("oversized", oversizedFrames.get());
+        return json;
+    }
+
+    /**
+     * Read exactly length bytes into bytes, looping over short reads.
+     * Returns how many read calls it took, or -1 if the stream ended first.
+     */
+    public static int readFully(InputStream in, byte[] bytes, int length) throws IOException {
+        int bytesRead = 0;
+        int reads = 0;
+        while (bytesRead < length) {
+            int n = in.read(bytes, bytesRead, length - bytesRead);
+            if (n < 0) {
+                return -1;
+            }
+            bytesRead += n;
+            reads++;
         }
+        return reads;
+    }
 
-        return bytes;
+    /**
+     * Read a 4 byte frame header, like readFully, -1 if the stream ended cleanly between frames.
+     * A header cut short counts as a truncated frame and throws EOFException.
+     */
+    public static int readHeader(InputStream in, byte[] bytes) throws IOException {
+        int bytesRead = 0;
+        int reads = 0;
+        while (bytesRead < 4) {
+            int n = in.read(bytes, bytesRead, 4 - bytesRead);
+            if (n < 0) {
+                if (bytesRead == 0) {
+                    return -1;
+                }
+                frameTruncated();
+                throw new EOFException("Connection closed in the middle of a frame header");
+            }
+            bytesRead += n;
+            reads++;
+        }
+        return reads;
     }
 
     // first 4 bytes we read give us the length of the message we are about to
     // receive
-    // next we call read again with the length of the actual bytes in the data we
-    // are interested in
+    // next we keep reading until all bytes of the message have arrived, TCP may
+    // hand them to us in several pieces
     /** 
      * Receive the bytes on the stream.
      */
     public static byte[] receive(InputStream in) throws IOException {
-        byte[] lengthBytes = read(in, 4);
-        if (lengthBytes == null) {
+        byte[] lengthBytes = new byte[4];
+        int headerReads;
+        try {
+            headerReads = readHeader(in, lengthBytes);
+        } catch (EOFException e) {
+            return new byte[0]; // counted as truncated
+        }
+        if (headerReads < 0) {
             return new byte[0];
         }
         int length = NetworkUtils.bytesToInt(lengthBytes);
-        byte[] message = read(in, length);
-        if (message == null) {
+        checkFrameLength(length);
+        byte[] message = new byte[length];
+        int bodyReads = readFully(in, message, length);
+        if (bodyReads < 0) {
+            frameTruncated();
             return new byte[0];
         }
+        frameReceived(headerReads > 1 || bodyReads > 1);
         return message;
     }
 }
@@ -0,0 +1,390 @@
+/**
+ * File : NioServer.java
+ * Author : ndavispe
+ * Description : NioServer class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Class : NioServer
+ * Description : Server tasks (non-blocking selector front end + worker pool)
+ *
+ * <p>A single selector thread owns every socket. It reads the 4 byte length prefixed frames
+ * used by NetworkUtils incrementally and only hands complete requests to the worker pool, so
+ * idle clients cost a registered key instead of a thread.
+ *
+ * <p>Requests without an "id" are handled one at a time per connection, in order. Requests
+ * with an "id" are pipelined (see Pipeline) and answered as soon as their worker finishes.
+ */
+class NioServer {
+
+    // shared across all workers
+    static StringList strings = StringList.create(); // persistent under -Dwal.dir
+    static Performer performer = new Performer(strings);
+    static ExecutorService workers;
+    static Selector selector;
+
+    // connections with new output or finished work, handed back to the selector thread
+    static final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+    public static void main(String[] args) throws Exception {
+        // Setup
+        // initialize variables (defaults)
+        int port = 8000;
+        int workerCount = 4;
+
+        // parse cli args for port & workerCount
+        try {
+            port = Integer.parseInt(args[0]);
+            if (args.length > 1) {
+                workerCount = Integer.parseInt(args[1]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("[Port] and [Workers] must be integers");
+            System.exit(2); // .exit(2) for CLI args
+        }
+
+        workers = Executors.newFixedThreadPool(workerCount);
+        ServerMetrics.gauge("queued", () -> ((ThreadPoolExecutor) workers).getQueue().size());
+        selector = Selector.open();
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        System.out.println("Server Started with " + workerCount + " workers...");
+
+        while (true) {
+            selector.select();
+
+            // re-arm connections whose workers produced output or finished
+            Connection done;
+            while ((done = completed.poll()) != null) {
+                update(done);
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(server);
+                        continue;
+                    }
+                    Connection conn = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        read(conn);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(conn);
+                    }
+                    update(conn);
+                } catch (IOException e) {
+                    close(key);
+                }
+            }
+        }
+    }
+
+    // register a newly accepted client for reads
+    private static void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(key));
+        ServerMetrics.connected();
+    }
+
+    // read as much of the current frame as is available, dispatch once complete
+    private static void read(Connection conn) throws IOException {
+        SocketChannel channel = (SocketChannel) conn.key.channel();
+
+        if (conn.reading < 0) {
+            if (channel.read(conn.header) < 0) {
+                if (conn.header.position() > 0) {
+                    NetworkUtils.frameTruncated();
+                }
+                close(conn.key);
+                return;
+            }
+            conn.reads++;
+            if (conn.header.hasRemaining()) {
+                return; // header still partial
+            }
+            conn.header.flip();
+            int length = conn.header.getInt();
+            conn.header.clear();
+            try {
+                NetworkUtils.checkFrameLength(length);
+            } catch (IOException e) {
+                System.out.println("Dropping client : " + e.getMessage());
+                close(conn.key);
+                return;
+            }
+            // the body buffer is reused for every frame and only grows
+            if (conn.body.capacity() < length) {
+                conn.body = ByteBuffer.allocate(Math.max(length, conn.body.capacity() * 2));
+            }
+            conn.body.clear().limit(length);
+            conn.reading = length;
+        }
+
+        if (conn.body.hasRemaining()) {
+            if (channel.read(conn.body) < 0) {
+                NetworkUtils.frameTruncated();
+                close(conn.key);
+                return;
+            }
+            conn.reads++;
+            if (conn.body.hasRemaining()) {
+                return; // body still partial
+            }
+        }
+        int length = conn.reading;
+        conn.reading = -1;
+        // one read for the header and one for the body is a whole frame
+        NetworkUtils.frameReceived(conn.reads > (length > 0 ? 2 : 1));
+        conn.reads = 0;
+
+        // parsed here, before the buffer is reused, workers only see the Request
+        Request message;
+        try {
+            message = conn.format.decodeRequest(conn.body.array(), length);
+        } catch (JSONException e) {
+            conn.outbox.add(frame(conn.format.encodeResponse(Performer.error("Invalid request: " + e.getMessage()))));
+            return;
+        }
+
+        int op = message.selected;
+        if (Pipeline.isPipelined(message)) {
+            // answered out of order, tagged with the request id
+            conn.inFlight.incrementAndGet();
+            submit(conn, false, op, () -> {
+                try {
+                    return conn.format.encodeResponse(Pipeline.tag(message, performer.perform(message)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return conn.format.encodeResponse(Pipeline.tag(message, Performer.error("Server interrupted")));
+                }
+            });
+        } else if (op == 0) {
+            // quit waits in update() until the pipelined requests have answered
+            conn.pendingQuit = message;
+            conn.pendingAt = System.nanoTime();
+        } else if (op == 9) {
+            // so does a format switch, pipelined requests are answered in the old format
+            conn.pendingFormat = message;
+            conn.pendingAt = System.nanoTime();
+        } else {
+            // one ordered request in flight per connection keeps those responses in order
+            conn.ordered = true;
+            submit(conn, true, op, () -> perform(conn, message));
+        }
+    }
+
+    // run work on the worker pool and hand its frame back to the selector thread
+    // the ordered / in-flight bookkeeping is only released once the frame is queued, and always
+    // released, or the connection would never be read again
+    // op is the selected code the latency is recorded under, -1 for follow up pages
+    private static void submit(Connection conn, boolean ordered, int op, Supplier<byte[]> work) {
+        long started = System.nanoTime();
+        workers.execute(() -> {
+            try {
+                byte[] output;
+                try {
+                    output = work.get();
+                } catch (JSONException e) {
+                    output = conn.format.encodeResponse(Performer.error("Invalid request: " + e.getMessage()));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    output = conn.format.encodeResponse(Performer.error("Server error: " + e));
+                }
+                conn.outbox.add(frame(output));
+                ServerMetrics.record(op, started);
+            } finally {
+                if (ordered) {
+                    conn.ordered = false;
+                } else {
+                    conn.inFlight.decrementAndGet();
+                }
+                completed.add(conn);
+                selector.wakeup();
+            }
+        });
+    }
+
+    // flush as much pending output as the socket takes, header + payload in one gathering write
+    private static void write(Connection conn) throws IOException {
+        SocketChannel channel = (SocketChannel) conn.key.channel();
+        while (true) {
+            if (conn.current == null) {
+                conn.current = conn.outbox.poll();
+                if (conn.current == null) {
+                    return; // all written
+                }
+            }
+            channel.write(conn.current);
+            if (conn.current[1].hasRemaining()) {
+                return; // socket buffer full, wait for next OP_WRITE
+            }
+            conn.current = null;
+        }
+    }
+
+    // decide what the connection waits for next, only called on the selector thread
+    private static void update(Connection conn) {
+        if (!conn.key.isValid()) {
+            return;
+        }
+        boolean writing = conn.current != null || !conn.outbox.isEmpty();
+
+        // a format switch is answered in the old format once nothing else is running
+        if (conn.pendingFormat != null && !conn.ordered && conn.inFlight.get() == 0) {
+            JSONObject response = Performer.format(conn.pendingFormat.optText());
+            conn.outbox.add(frame(conn.format.encodeResponse(Pipeline.tag(conn.pendingFormat, response))));
+            if (!response.has("error")) {
+                conn.format = WireFormat.forName(response.getString("data"));
+            }
+            ServerMetrics.record(9, conn.pendingAt);
+            conn.pendingFormat = null;
+            writing = true;
+        }
+
+        // quit is answered once nothing else is running for the connection
+        if (conn.pendingQuit != null && !conn.ordered && conn.inFlight.get() == 0) {
+            conn.outbox.add(frame(conn.format.encodeResponse(Pipeline.tag(conn.pendingQuit, performer.quit()))));
+            ServerMetrics.record(0, conn.pendingAt);
+            conn.pendingQuit = null;
+            conn.quit = true;
+            writing = true;
+        }
+
+        // a streamed display asks for its next page once the previous one is on the wire
+        if (conn.pageNext >= 0 && !conn.ordered && !writing) {
+            int offset = conn.pageNext;
+            conn.pageNext = -1;
+            conn.ordered = true;
+            submit(conn, true, -1, () -> encodePage(conn, conn.pagePerformer.page(offset, conn.pageLimit)));
+        }
+
+        if (conn.quit && !writing) {
+            if (Log.DEBUG) {
+                Log.debug("Client disconnected : " + NetworkUtils.metrics());
+            }
+            close(conn.key);
+            return;
+        }
+
+        int ops = writing ? SelectionKey.OP_WRITE : 0;
+        boolean idle = !conn.ordered && conn.pageNext < 0 && conn.pendingQuit == null && conn.pendingFormat == null
+                && !conn.quit;
+        if (idle && conn.inFlight.get() < Pipeline.MAX_IN_FLIGHT) {
+            ops |= SelectionKey.OP_READ;
+        }
+        conn.key.interestOps(ops);
+    }
+
+    private static void close(SelectionKey key) {
+        if (key.channel().isOpen()) {
+            ServerMetrics.disconnected();
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // length prefix + payload, the payload is wrapped rather than copied
+    private static ByteBuffer[] frame(byte[] payload) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(0, payload.length);
+        return new ByteBuffer[] { header, ByteBuffer.wrap(payload) };
+    }
+
+    // encode a page, a streamed display keeps the connection busy until its last page is written
+    private static byte[] encodePage(Connection conn, JSONObject page) {
+        conn.pageNext = page.optBoolean("more") ? page.getInt("next") : -1;
+        return conn.format.encodeResponse(Pipeline.tag(conn.pageRequest, page));
+    }
+
+    // runs on a worker thread, same dispatch as the blocking servers (quit and format are handled
+    // in update), a paged display starts here, every other request is answered by Performer
+    private static byte[] perform(Connection conn, Request message) {
+        try {
+            if (message.selected == 5) { // handle Paged Display, remaining pages follow from update()
+                Performer target = performer.namespace(message); // list picked by the request
+                Request.Page paging = message.page();
+                conn.pageRequest = message;
+                conn.pagePerformer = target;
+                conn.pageLimit = paging.limit;
+                return encodePage(conn, target.page(paging.offset, conn.pageLimit));
+            }
+            return performer.respond(message, conn.format);
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return conn.format.encodeResponse(Performer.error("Invalid request: " + e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return conn.format.encodeResponse(Performer.error("Server interrupted"));
+        }
+    }
+
+    // per socket state, attached to its SelectionKey
+    static class Connection {
+        final SelectionKey key;
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        ByteBuffer body = ByteBuffer.allocate(FrameCodec.INITIAL_BUFFER); // reused per frame
+        int reading = -1; // length of the body being read, -1 while reading a header
+        int reads = 0; // read calls spent on the current frame
+        ByteBuffer[] current; // frame being written, selector thread only
+
+        // frames (header, payload) produced by workers, drained by the selector thread
+        final Queue<ByteBuffer[]> outbox = new ConcurrentLinkedQueue<>();
+        // pipelined requests still running
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile boolean ordered; // an in-order request (or page) is running
+        volatile Request pendingQuit; // quit received, waiting for in-flight work
+        volatile Request pendingFormat; // format switch received, waiting for in-flight work
+        volatile long pendingAt; // when the pending quit or format switch was received
+        volatile WireFormat format = WireFormat.JSON; // payload encoding of this connection
+        volatile boolean quit;
+
+        volatile Request pageRequest; // request of the display being streamed
+        volatile int pageLimit; // page size of the display being streamed
+        volatile Performer pagePerformer; // namespace of the display being streamed
+        volatile int pageNext = -1; // offset of the next page to stream, -1 when done
+
+        Connection(SelectionKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -15,6 +15,16 @@ import java.io.OutputStream;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import static java.lang.Thread.sleep;
@@ -25,30 +35,266 @@ import static java.lang.Thread.sleep;
  */
 class Performer {
 
+    // largest number of strings returned in one page frame
+    static final int MAX_PAGE = 1000;
+
+    // threads in the background add stage used by addAsync
+    static final int ADD_STAGE_THREADS = 4;
+
+    // finished tickets nobody polled are forgotten after TICKET_TTL_MS, or earlier once more than
+    // MAX_FINISHED_TICKETS are waiting, so fire and forget adds do not pile up
+    static final long TICKET_TTL_MS = 10 * 60 * 1000;
+    static final int MAX_FINISHED_TICKETS = 100_000;
+    private static final long PENDING = Long.MIN_VALUE; // ticket value while its add is still running
+
+    // most named lists a server keeps, and what a namespace name may look like
+    static final int MAX_NAMESPACES = 1024;
+    static final Pattern NAMESPACE = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
     private StringList state;
 
+    // async add stage, a ticket maps to PENDING until its add has been applied, then to the
+    // time (System.nanoTime) it finished, finished holds the finished tickets oldest first
+    // the stage and ticket ids are shared by every namespace, the tickets themselves are not
+    private final ExecutorService addStage;
+    private final ConcurrentHashMap<Long, Long> tickets = new ConcurrentHashMap<>();
+    private final ArrayDeque<Long> finished = new ArrayDeque<>(); // guarded by itself
+    private final AtomicLong nextTicket;
+
+    // named lists ("namespace" of a request), each its own StringList with its own locks
+    // shared with the namespace performers, the default list is this performer's state
+    private final ConcurrentHashMap<String, Performer> namespaces;
+
     public Performer(StringList strings) {
+        this(strings, ADD_STAGE_THREADS);
+    }
+
+    public Performer(StringList strings, int addStageThreads) {
         this.state = strings;
+        // daemon threads so a pending add never keeps the server process alive
+        this.addStage = Executors.newFixedThreadPool(addStageThreads, task -> {
+            Thread thread = new Thread(task, "add-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.nextTicket = new AtomicLong(1);
+        this.namespaces = new ConcurrentHashMap<>();
+        if (strings.filter() != null) {
+            ServerMetrics.gauge("filterHits", () -> filterStat(BloomFilter::hits));
+            ServerMetrics.gauge("filterMisses", () -> filterStat(BloomFilter::misses));
+            ServerMetrics.gauge("filterFalsePositives", () -> filterStat(BloomFilter::falsePositives));
+        }
+    }
+
+    // bloom filter statistic summed over the default and every named list
+    private long filterStat(ToLongFunction<BloomFilter> stat) {
+        long sum = stat.applyAsLong(state.filter());
+        for (Performer named : namespaces.values()) {
+            sum += stat.applyAsLong(named.state.filter());
+        }
+        return sum;
+    }
+
+    // finish the accepted async adds (waiting at most timeoutMs) and flush every list
+    // only called on shutdown, returns false if some async adds were still pending
+    public boolean close(long timeoutMs) throws InterruptedException, IOException {
+        addStage.shutdown();
+        boolean applied = addStage.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        state.close();
+        for (Performer named : namespaces.values()) {
+            named.state.close();
+        }
+        return applied;
+    }
+
+    // performer for one named list, shares everything but the list and its tickets
+    private Performer(Performer parent, StringList strings) {
+        this.state = strings;
+        this.addStage = parent.addStage;
+        this.nextTicket = parent.nextTicket;
+        this.namespaces = parent.namespaces;
+    }
+
+    // performer for the list a request names in "namespace", this one when it names none
+    // unknown namespaces are created on first use, outside the map so opening a persistent list
+    // (which recovers its log) never blocks the map, the lock just keeps it from being opened twice
+    public Performer namespace(Request message) {
+        String name = message.namespace;
+        if (name.isEmpty()) {
+            return this;
+        }
+        Performer named = namespaces.get(name);
+        if (named != null) {
+            return named;
+        }
+        if (!NAMESPACE.matcher(name).matches()) {
+            throw new JSONException("Invalid namespace: letters, digits, '_' and '-' only, at most 64");
+        }
+        synchronized (namespaces) {
+            named = namespaces.get(name);
+            if (named == null) {
+                if (namespaces.size() >= MAX_NAMESPACES) {
+                    throw new JSONException("Too many namespaces, at most " + MAX_NAMESPACES);
+                }
+                named = new Performer(this, StringList.create(name));
+                namespaces.put(name, named);
+            }
+        }
+        return named;
     }
 
     // add method (1)
     public JSONObject add(String str) throws InterruptedException {
-        System.out.println("Start add"); 
+        Log.debug("Start add");
         JSONObject json = new JSONObject();
         // json.put("datatype", 1); // not needed since "type", "add"
         json.put("type", "add");
         sleep(6000); // to make this take a bit longer
         state.add(str);
         json.put("data", state.toString());
-        System.out.println("end add");
+        Log.debug("end add");
+        return json;
+    }
+
+    // batch add method (1 with an array), one slow add for the whole batch
+    public JSONObject addAll(List<String> batch) throws InterruptedException {
+        Log.debug("Start batch add of " + batch.size());
+        JSONObject json = new JSONObject();
+        json.put("type", "add");
+        sleep(6000); // to make this take a bit longer
+        state.addAll(batch);
+        json.put("data", state.toString());
+        Log.debug("end batch add");
         return json;
     }
 
+    // add request (1), data is either a single string or an array of strings
+    public JSONObject add(Request message) throws InterruptedException {
+        List<String> batch = message.batch();
+        return batch != null ? addAll(batch) : add(message.text());
+    }
+
+    // async add method (6), queues the slow add and returns a ticket right away
+    public JSONObject addAsync(String str) {
+        expireTickets();
+        long id = nextTicket.getAndIncrement();
+        tickets.put(id, PENDING);
+        try {
+            addStage.execute(() -> {
+                try {
+                    add(str);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    tickets.put(id, System.nanoTime());
+                    synchronized (finished) {
+                        finished.add(id);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            tickets.remove(id); // the stage was shut down by Drain
+            return error("server shutting down");
+        }
+        JSONObject json = new JSONObject();
+        json.put("type", "accepted");
+        json.put("ticket", id); // "id" is the pipelined request id, see Pipeline.tag
+        return json;
+    }
+
+    // add status method (7), a finished ticket is forgotten once it has been reported
+    public JSONObject status(long id) {
+        expireTickets();
+        Long finishedAt = tickets.get(id);
+        if (finishedAt == null) {
+            return error("Unknown request id: " + id);
+        }
+        JSONObject json = new JSONObject();
+        json.put("type", "status");
+        json.put("ticket", id);
+        if (finishedAt != PENDING) {
+            tickets.remove(id);
+            json.put("state", "done");
+            json.put("data", state.toString());
+        } else {
+            json.put("state", "pending");
+        }
+        return json;
+    }
+
+    // forget finished tickets older than TICKET_TTL_MS, and the oldest past MAX_FINISHED_TICKETS
+    // reported tickets were already removed by status(), their ids are simply dropped here
+    private void expireTickets() {
+        long now = System.nanoTime();
+        synchronized (finished) {
+            Long oldest;
+            while ((oldest = finished.peek()) != null) {
+                Long finishedAt = tickets.get(oldest);
+                if (finishedAt != null && finished.size() <= MAX_FINISHED_TICKETS
+                        && now - finishedAt < TimeUnit.MILLISECONDS.toNanos(TICKET_TTL_MS)) {
+                    break;
+                }
+                finished.poll();
+                tickets.remove(oldest);
+            }
+        }
+    }
+
     // display method (3)
     public JSONObject display() {
         JSONObject json = new JSONObject();
         json.put("type", "display");
-        json.put("data", state.toString()); // return entire list as string
+        json.put("data", state.snapshot().text); // return entire list as string
+        return json;
+    }
+
+    // display method (3), already encoded response bytes
+    // encoded once per list version and reused until the next add
+    public byte[] displayBytes() {
+        StringList.Snapshot snapshot = state.snapshot();
+        byte[] bytes = snapshot.displayBytes;
+        if (bytes == null) {
+            JSONObject json = new JSONObject();
+            json.put("type", "display");
+            json.put("data", snapshot.text);
+            bytes = JsonUtils.toByteArray(json);
+            snapshot.displayBytes = bytes;
+        }
+        return bytes;
+    }
+
+    // display method (3) encoded for a connection's wire format, cached like displayBytes()
+    public byte[] displayBytes(WireFormat format) {
+        if (format == WireFormat.JSON) {
+            return displayBytes();
+        }
+        StringList.Snapshot snapshot = state.snapshot();
+        byte[] bytes = snapshot.displayProto;
+        if (bytes == null) {
+            JSONObject json = new JSONObject();
+            json.put("type", "display");
+            json.put("data", snapshot.text);
+            bytes = format.encodeResponse(json);
+            snapshot.displayProto = bytes;
+        }
+        return bytes;
+    }
+
+    // paged display method (5), one chunk of the list per frame
+    // "more" tells the caller whether to ask for the page starting at "next"
+    public JSONObject page(int offset, int limit) {
+        if (offset < 0 || limit <= 0 || limit > MAX_PAGE) {
+            return error("Invalid page: offset must be >= 0 and limit between 1 and " + MAX_PAGE);
+        }
+        int total = state.size();
+        int next = (int) Math.min((long) offset + limit, total);
+        JSONObject json = new JSONObject();
+        json.put("type", "page");
+        json.put("offset", offset);
+        json.put("next", Math.max(next, offset));
+        json.put("total", total);
+        json.put("more", next < total);
+        json.put("data", state.toString(offset, limit));
         return json;
     }
 
@@ -60,6 +306,26 @@ class Performer {
         return json;
     }
 
+    // contains method (11), lock free, misses are usually answered by the bloom filter
+    public JSONObject contains(String str) {
+        JSONObject json = new JSONObject();
+        json.put("type", "contains");
+        json.put("data", state.contains(str));
+        return json;
+    }
+
+    // format method (9), the answer to a wire format switch ("json" or "protobuf")
+    public static JSONObject format(String name) {
+        WireFormat format = WireFormat.forName(name);
+        if (format == null) {
+            return error("Unknown format: " + name + ", use json or protobuf");
+        }
+        JSONObject json = new JSONObject();
+        json.put("type", "format");
+        json.put("data", format.name().toLowerCase());
+        return json;
+    }
+
     // quit method (0)
     public JSONObject quit() {
         JSONObject json = new JSONObject();
@@ -68,10 +334,65 @@ class Performer {
         return json;
     }
 
+    // keepalive, answers right away and counts as activity for the idle reaper
+    public static JSONObject ping() {
+        JSONObject json = new JSONObject();
+        json.put("type", "pong");
+        json.put("data", "");
+        return json;
+    }
+
+    // run a request that has exactly one response, the servers only handle the connection level
+    // requests themselves: quit (0), paged display (5) and format (9), which stay in order
+    public JSONObject perform(Request message) throws InterruptedException {
+        int choice = message.selected;
+        Performer target = namespace(message); // list picked by the request
+        switch (choice) {
+            case (1): // handle Add
+                return target.add(message);
+            case (3): // handle Display
+                return target.display();
+            case (4): // handle Count
+                return target.count();
+            case (6): // handle Async Add
+                return target.addAsync(message.text());
+            case (7): // handle Async Add status
+                return target.status(message.ticket());
+            case (8): // handle Metrics
+                return ServerMetrics.report();
+            case (10): // handle Ping
+                return ping();
+            case (11): // handle Contains
+                return target.contains(message.text());
+            case (0):
+            case (5):
+            case (9):
+                return error("Invalid selection: " + choice + " can not be pipelined");
+            default:
+                return error("Invalid selection: " + choice + " is not an option");
+        }
+    }
+
+    // perform() encoded for a connection's wire format and tagged with the request id (if any)
+    // an untagged display (3) is answered with the bytes cached for the current list version
+    public byte[] respond(Request message, WireFormat format) throws InterruptedException {
+        if (message.selected == 3 && !message.hasId()) {
+            return namespace(message).displayBytes(format);
+        }
+        return format.encodeResponse(Pipeline.tag(message, perform(message)));
+    }
+
     public static JSONObject error(String err) {
         JSONObject json = new JSONObject();
         json.put("type", "error"); // updated to match ReadMe.md protocol
         json.put("error", err); // key
         return json;
     }
+
+    // admission control turned the connection or request away, the client retries after the hint
+    public static JSONObject busy(long retryAfterMs) {
+        JSONObject json = error("server busy, retry after " + retryAfterMs + " ms");
+        json.put("retryAfter", retryAfterMs);
+        return json;
+    }
 }
@@ -0,0 +1,135 @@
+/**
+ * File : Pipeline.java
+ * Author : ndavispe
+ * Description : Pipeline class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Class : Pipeline
+ * Description : Pipelined requests for one blocking connection
+ *
+ * <p>Requests that carry an "id" are run alongside each other and answered as soon as they
+ * finish, tagged with the same id, so a client can keep many requests in flight on one socket.
+ * Every frame for the connection goes out through the FrameCodec, which serializes writes.
+ *
+ * <p>The requests of every connection share one bounded pool (-Dpipeline.threads threads and
+ * -Dpipeline.queue waiting requests). A request that does not fit is answered right away with
+ * the same busy error ThreadedPoolServer sends to connections it can't admit, so pipelining
+ * clients can't grow the server's thread count past the pool.
+ */
+class Pipeline {
+
+    // most pipelined requests one connection may have running, the reader blocks past this
+    static final int MAX_IN_FLIGHT = 64;
+
+    // threads running pipelined requests, -Dpipeline.threads=<n>, and requests waiting for one
+    static final int THREADS = Integer.getInteger("pipeline.threads", 64);
+    static final int QUEUE = Integer.getInteger("pipeline.queue", 1024);
+    // retry hint sent with requests the full pool turned away
+    static final long RETRY_AFTER_MS = 500;
+
+    // shared by the pipelined requests of every connection
+    private static final ThreadPoolExecutor requests = new ThreadPoolExecutor(THREADS, THREADS,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE), task -> {
+                Thread thread = new Thread(task, "pipeline");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private static final AtomicLong rejected = new AtomicLong();
+
+    private final Performer performer;
+    private final FrameCodec codec;
+    private final Session session;
+    private final Semaphore slots = new Semaphore(MAX_IN_FLIGHT);
+
+    Pipeline(Performer performer, FrameCodec codec, Session session) {
+        this.performer = performer;
+        this.codec = codec;
+        this.session = session;
+        // registered by the first pipelining connection, so NioServer does not report them
+        ServerMetrics.gauge("pipelineQueued", () -> requests.getQueue().size());
+        ServerMetrics.gauge("pipelineRejected", rejected::get);
+    }
+
+    // quit (0), paged display (5) and format (9) are connection level and always handled in order
+    static boolean isPipelined(Request message) {
+        int choice = message.selected;
+        return message.hasId() && choice != 0 && choice != 5 && choice != 9;
+    }
+
+    // copy the request id (if any) onto a response
+    static JSONObject tag(Request message, JSONObject response) {
+        if (message.hasId()) {
+            response.put("id", message.id);
+        }
+        return response;
+    }
+
+    // run a pipelined request in the background, blocks while MAX_IN_FLIGHT are running
+    // the caller entered the session for it, the request exits once answered
+    // a request the shared pool has no room for is answered with a busy error instead
+    void submit(Request message) throws InterruptedException, IOException {
+        long started = System.nanoTime();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            session.exit();
+            throw e;
+        }
+        try {
+            requests.execute(() -> run(message, started));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            try {
+                codec.send(codec.encode(tag(message, Performer.busy(RETRY_AFTER_MS))));
+            } finally {
+                slots.release();
+                session.exit();
+            }
+        }
+    }
+
+    // pool thread: perform the request and answer it
+    private void run(Request message, long started) {
+        JSONObject returnMessage;
+        try {
+            returnMessage = performer.perform(message);
+        } catch (JSONException e) {
+            returnMessage = Performer.error("Invalid request: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            returnMessage = Performer.error("Server interrupted");
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // e.g. the list is shutting down, still free the slot below
+            returnMessage = Performer.error("Server error: " + e.getMessage());
+        }
+        try {
+            codec.send(codec.encode(tag(message, returnMessage)));
+            ServerMetrics.record(message.selected, started);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            slots.release();
+            session.exit();
+        }
+    }
+
+    // wait until every pipelined request of this connection has answered
+    void drain() throws InterruptedException {
+        slots.acquire(MAX_IN_FLIGHT);
+        slots.release(MAX_IN_FLIGHT);
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * File : ProtoCodec.java
+ * Author : ndavispe
+ * Description : ProtoCodec class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import taskone.buffers.TaskOneProtos;
+import taskone.buffers.TaskOneProtos.Page;
+import taskone.buffers.TaskOneProtos.Response;
+import taskone.buffers.TaskOneProtos.Strings;
+
+/**
+ * Class : ProtoCodec
+ * Description : Maps the protobuf messages in taskone.proto to the json protocol
+ *
+ * <p>A protobuf request is decoded straight into the server's Request, and responses are built
+ * field by field, so the dispatch code stays the same for both formats while no json text is
+ * parsed or printed.
+ */
+class ProtoCodec {
+
+    // protobuf request frame to a Request, throws JSONException like the json parser does
+    static Request decodeRequest(byte[] bytes, int length) {
+        TaskOneProtos.Request request;
+        try {
+            request = TaskOneProtos.Request.parser().parseFrom(bytes, 0, length);
+        } catch (InvalidProtocolBufferException e) {
+            throw new JSONException("Invalid protobuf request: " + e.getMessage());
+        }
+        Object data;
+        switch (request.getDataCase()) {
+            case TEXT:
+                data = request.getText();
+                break;
+            case BATCH:
+                data = request.getBatch().getValuesList(); // already immutable
+                break;
+            case PAGE:
+                Page page = request.getPage();
+                data = new Request.Page(page.hasOffset() ? page.getOffset() : 0,
+                        page.hasLimit() ? page.getLimit() : Performer.MAX_PAGE);
+                break;
+            case TICKET:
+                data = request.getTicket();
+                break;
+            default:
+                data = "";
+                break;
+        }
+        return new Request(request.hasSelected() ? request.getSelected() : -1,
+                request.hasId() ? (Object) request.getId() : null, request.getNamespace(), data);
+    }
+
+    // json response to a protobuf response frame
+    static byte[] encodeResponse(JSONObject json) {
+        Response.Builder response = Response.newBuilder().setType(json.optString("type"));
+        Object data = json.opt("data");
+        if (data instanceof Number) {
+            response.setCount(((Number) data).intValue());
+        } else if (data instanceof Boolean) {
+            response.setFound((Boolean) data);
+        } else if (data != null) {
+            response.setText(data.toString()); // metrics data is sent as json text
+        }
+        if (json.has("id")) {
+            response.setId(json.getLong("id"));
+        }
+        if (json.has("error")) {
+            response.setError(json.getString("error"));
+        }
+        if (json.has("offset")) {
+            response.setOffset(json.getInt("offset"))
+                    .setNext(json.getInt("next"))
+                    .setTotal(json.getInt("total"))
+                    .setMore(json.getBoolean("more"));
+        }
+        if (json.has("state")) {
+            response.setState(json.getString("state"));
+        }
+        if (json.has("retryAfter")) {
+            response.setRetryAfter(json.getLong("retryAfter"));
+        }
+        if (json.has("ticket")) {
+            response.setTicket(json.getLong("ticket"));
+        }
+        return response.build().toByteArray();
+    }
+
+    // json request to a protobuf request frame (client side)
+    static byte[] encodeRequest(JSONObject json) {
+        TaskOneProtos.Request.Builder request = TaskOneProtos.Request.newBuilder().setSelected(json.getInt("selected"));
+        Object data = json.opt("data");
+        if (data instanceof JSONArray) {
+            Strings.Builder batch = Strings.newBuilder();
+            for (Object value : (JSONArray) data) {
+                batch.addValues(value.toString());
+            }
+            request.setBatch(batch);
+        } else if (data instanceof JSONObject) {
+            JSONObject paging = (JSONObject) data;
+            Page.Builder page = Page.newBuilder();
+            if (paging.has("offset")) {
+                page.setOffset(paging.getInt("offset"));
+            }
+            if (paging.has("limit")) {
+                page.setLimit(paging.getInt("limit"));
+            }
+            request.setPage(page);
+        } else if (data instanceof Number) {
+            request.setTicket(((Number) data).longValue());
+        } else if (data != null) {
+            request.setText(data.toString());
+        }
+        if (json.has("id")) {
+            request.setId(json.getLong("id"));
+        }
+        if (json.has("namespace")) {
+            request.setNamespace(json.getString("namespace"));
+        }
+        return request.build().toByteArray();
+    }
+
+    // protobuf response frame to its json form (client side)
+    static JSONObject decodeResponse(byte[] bytes) {
+        Response response;
+        try {
+            response = Response.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new JSONException("Invalid protobuf response: " + e.getMessage());
+        }
+        JSONObject json = new JSONObject();
+        json.put("type", response.getType());
+        if (response.hasCount()) {
+            json.put("data", response.getCount());
+        } else if (response.hasFound()) {
+            json.put("data", response.getFound());
+        } else if (response.hasText()) {
+            boolean metrics = response.getType().equals("metrics");
+            json.put("data", metrics ? new JSONObject(response.getText()) : response.getText());
+        }
+        if (response.hasId()) {
+            json.put("id", response.getId());
+        }
+        if (response.hasError()) {
+            json.put("error", response.getError());
+        }
+        if (response.hasOffset()) {
+            json.put("offset", response.getOffset());
+            json.put("next", response.getNext());
+            json.put("total", response.getTotal());
+            json.put("more", response.getMore());
+        }
+        if (response.hasState()) {
+            json.put("state", response.getState());
+        }
+        if (response.hasRetryAfter()) {
+            json.put("retryAfter", response.getRetryAfter());
+        }
+        if (response.hasTicket()) {
+            json.put("ticket", response.getTicket());
+        }
+        return json;
+    }
+}
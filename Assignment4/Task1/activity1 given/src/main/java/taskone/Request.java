@@ -0,0 +1,121 @@
+/**
+ * File : Request.java
+ * Author : ndavispe
+ * Description : Request class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Class : Request
+ * Description : A decoded client request, the same for every wire format
+ *
+ * <p>The json parser and ProtoCodec both decode a frame straight into a Request, so the servers
+ * and Performer dispatch on it without converting protobuf requests into json first. The data
+ * accessors throw JSONException when the data has the wrong shape, which the servers answer
+ * with "Invalid request" like they answer a malformed json frame.
+ */
+final class Request {
+
+    final int selected; // -1 if the request has none
+    final Object id; // pipelined request id as sent (a long from protobuf), null if none
+    final String namespace; // "" for the default list
+    private final Object data; // String, List<String> (batch), Long (ticket), Page or null
+
+    Request(int selected, Object id, String namespace, Object data) {
+        this.selected = selected;
+        this.id = id;
+        this.namespace = namespace;
+        this.data = data;
+    }
+
+    /**
+     * Offset and limit of a paged display (5).
+     */
+    static final class Page {
+        final int offset;
+        final int limit;
+
+        Page(int offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+
+    // a parsed json request, a batch that holds something other than strings is only rejected
+    // once it is added, like any other data of the wrong shape
+    static Request fromJson(JSONObject message) {
+        Object data = message.opt("data");
+        if (data instanceof JSONArray) {
+            data = Collections.unmodifiableList(((JSONArray) data).toList());
+        } else if (data instanceof JSONObject) {
+            JSONObject paging = (JSONObject) data;
+            data = new Page(paging.optInt("offset", 0), paging.optInt("limit", Performer.MAX_PAGE));
+        } else if (data instanceof Number) {
+            data = ((Number) data).longValue();
+        }
+        return new Request(message.optInt("selected", -1), message.opt("id"),
+                message.optString("namespace", ""), data);
+    }
+
+    boolean hasId() {
+        return id != null;
+    }
+
+    // data of add (1), async add (6) and contains (11)
+    String text() {
+        if (!(data instanceof String)) {
+            throw new JSONException("data must be a string");
+        }
+        return (String) data;
+    }
+
+    // data of a format request (9), "" when it is not a string
+    String optText() {
+        return data instanceof String ? (String) data : "";
+    }
+
+    // data of an add (1) with several strings, null when it is a single string
+    @SuppressWarnings("unchecked")
+    List<String> batch() {
+        if (!(data instanceof List)) {
+            return null;
+        }
+        for (Object value : (List<?>) data) {
+            if (!(value instanceof String)) {
+                throw new JSONException("data must be a string or an array of strings");
+            }
+        }
+        return (List<String>) data;
+    }
+
+    // data of an async add status (7), a number or a numeric string
+    long ticket() {
+        if (data instanceof Long) {
+            return (Long) data;
+        }
+        try {
+            if (data instanceof String) {
+                return Long.parseLong((String) data);
+            }
+        } catch (NumberFormatException e) {
+            // same error as any other data
+        }
+        throw new JSONException("data must be a ticket number");
+    }
+
+    // data of a paged display (5)
+    Page page() {
+        if (!(data instanceof Page)) {
+            throw new JSONException("data must be an object with offset and limit");
+        }
+        return (Page) data;
+    }
+}
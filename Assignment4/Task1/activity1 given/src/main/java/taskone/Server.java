@@ -15,7 +15,6 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import org.json.JSONObject;
 
 /**
  * Class: Server
@@ -27,7 +26,7 @@ class Server {
 
     public static void main(String[] args) throws Exception {
         int port;
-        StringList strings = new StringList();
+        StringList strings = StringList.create(); // persistent under -Dwal.dir
         performer = new Performer(strings);
 
         if (args.length != 1) {
@@ -45,57 +44,14 @@ class Server {
         ServerSocket server = new ServerSocket(port);
         System.out.println("Server Started...");
         while (true) {
-            System.out.println("Accepting a Request...");
+            Log.debug("Accepting a Request...");
             conn = server.accept();
             doPerform();
         }
     }
 
+    // single threaded, the next client waits until this one quits
     public static void doPerform() {
-        boolean quit = false;
-        OutputStream out = null;
-        InputStream in = null;
-
-        try {
-            out = conn.getOutputStream();
-            in = conn.getInputStream();
-            System.out.println("Server connected to client:");
-
-            while (!quit) {
-                byte[] messageBytes = NetworkUtils.receive(in);
-                JSONObject message = JsonUtils.fromByteArray(messageBytes);
-                JSONObject returnMessage = new JSONObject();
-
-                int choice = message.getInt("selected");
-                switch (choice) {
-                    case (1) : // handle Add
-                        String inStr = (String) message.get("data");
-                        returnMessage = performer.add(inStr);
-                        break;
-                    case (3) : // handle Display
-                        returnMessage = performer.display();
-                        break;
-                    case (4) : // handle Count
-                        returnMessage = performer.count();
-                        break;
-                    case (0) : // handle Quit
-                        returnMessage = performer.quit();
-                        quit = true; // while loop flag to close connection
-                        break;
-                    default:
-                        returnMessage = performer.error("Invalid selection: " + choice + " is not an option");
-                        break;
-                }
-                // we are converting the JSON object we have to a byte[]
-                byte[] output = JsonUtils.toByteArray(returnMessage);
-                NetworkUtils.send(out, output);
-            }
-            // close the resource
-            System.out.println("close the resources of client ");
-            out.close();
-            in.close();
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-        }
+        new Connection(conn, performer, "Server", false).run();
     }
 }
@@ -0,0 +1,96 @@
+/**
+ * File : ServerMetrics.java
+ * Author : ndavispe
+ * Description : ServerMetrics class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.json.JSONObject;
+
+/**
+ * Class : ServerMetrics
+ * Description : Process wide request metrics, reported through the metrics request (8)
+ *
+ * <p>Every answered request is counted and its latency (receive to response, in microseconds)
+ * recorded in a LatencyHistogram for its operation. Servers also register gauges for whatever
+ * they can report about themselves, e.g. pool queue depth. Recording is lock free.
+ */
+class ServerMetrics {
+
+    // operation names by selected code, null for codes that are not operations
+    static final String[] OPS = {
+        "quit", "add", null, "display", "count", "page", "addAsync", "status", "metrics", "format", "ping", "contains"
+    };
+
+    private static final LatencyHistogram[] latency = new LatencyHistogram[OPS.length];
+    private static final AtomicInteger connections = new AtomicInteger();
+    // sorted so the report is stable
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    static {
+        for (int i = 0; i < OPS.length; i++) {
+            if (OPS[i] != null) {
+                latency[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    // record a request answered now that was received at startNanos, unknown codes are ignored
+    static void record(int selected, long startNanos) {
+        if (selected >= 0 && selected < OPS.length && latency[selected] != null) {
+            latency[selected].record((System.nanoTime() - startNanos) / 1000);
+        }
+    }
+
+    static void connected() {
+        connections.incrementAndGet();
+    }
+
+    static void disconnected() {
+        connections.decrementAndGet();
+    }
+
+    // report value under name, replaces an earlier gauge with the same name
+    static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // metrics response (8)
+    static JSONObject report() {
+        JSONObject ops = new JSONObject();
+        for (int i = 0; i < OPS.length; i++) {
+            if (latency[i] == null) {
+                continue;
+            }
+            LatencyHistogram histogram = latency[i];
+            JSONObject op = new JSONObject();
+            op.put("count", histogram.count());
+            op.put("mean", histogram.mean());
+            op.put("p50", histogram.percentile(0.50));
+            op.put("p99", histogram.percentile(0.99));
+            op.put("p999", histogram.percentile(0.999));
+            op.put("max", histogram.max());
+            ops.put(OPS[i], op);
+        }
+
+        JSONObject data = new JSONObject();
+        data.put("connections", connections.get());
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            data.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        data.put("frames", NetworkUtils.frameMetrics());
+        data.put("latencyUnit", "us");
+        data.put("ops", ops);
+
+        JSONObject json = new JSONObject();
+        json.put("type", "metrics");
+        json.put("data", data);
+        return json;
+    }
+}
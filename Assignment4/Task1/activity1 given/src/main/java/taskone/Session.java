@@ -0,0 +1,176 @@
+/**
+ * File : Session.java
+ * Author : ndavispe
+ * Description : Session class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class : Session
+ * Description : One open client connection of a blocking server
+ *
+ * <p>Tracks the requests a connection has in flight and when it was last active. A reaper thread
+ * closes sessions that have been idle (no request in flight and no frame received or answered)
+ * for longer than -Didle.timeout seconds (off unless set, the interactive Client can sit at its
+ * menu for any length of time). The handler blocked in receive then ends, which frees
+ * its pool thread for the next queued client. Clients that want to stay connected while idle
+ * send ping requests. Accepted sockets also get TCP keepalive, so dead peers are noticed.
+ * The reaper claims a session by swapping its in-flight count from 0 to CLAIMED, checks once more
+ * that nothing happened meanwhile and then marks it CLOSED. enter() only counts a request while
+ * the session is neither, so a request is never cut off by the reaper: either it entered first
+ * and the session is not idle, or it finds the session closed.
+ *
+ * <p>enter() / exit() also take part in the shutdown drain, see Drain.
+ */
+class Session {
+
+    // idle time after which a session is closed, -Didle.timeout=<seconds>, 0 (default) never reaps
+    static final long IDLE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(Long.getLong("idle.timeout", 0));
+
+    private static final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong reaped = new AtomicLong();
+    private static ScheduledExecutorService reaper; // started with the first session
+    private static final int CLOSED = -1; // inFlight once the reaper closed the session
+    private static final int CLAIMED = -2; // inFlight while the reaper decides, only for a moment
+
+    final Socket conn;
+    private final AtomicInteger inFlight = new AtomicInteger(); // requests entered, or CLOSED
+    private volatile long lastActive = System.nanoTime();
+
+    private Session(Socket conn) {
+        this.conn = conn;
+    }
+
+    // register an accepted connection, ended with end() when its handler is done
+    static Session open(Socket conn) {
+        try {
+            conn.setKeepAlive(true);
+        } catch (SocketException e) {
+            e.printStackTrace();
+        }
+        Session session = new Session(conn);
+        sessions.add(session);
+        startReaper();
+        return session;
+    }
+
+    void end() {
+        sessions.remove(this);
+    }
+
+    // start a request, false when the server is draining (see Drain.enter) or the reaper
+    // already closed the session
+    boolean enter() {
+        int count;
+        do {
+            count = inFlight.get();
+            if (count == CLOSED) {
+                return false;
+            }
+            if (count == CLAIMED) {
+                Thread.onSpinWait();
+                continue;
+            }
+        } while (!inFlight.compareAndSet(count, count + 1));
+        lastActive = System.nanoTime();
+        if (!Drain.enter()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // a request started with enter() has been answered
+    void exit() {
+        lastActive = System.nanoTime();
+        inFlight.decrementAndGet();
+        Drain.exit();
+    }
+
+    // true if the reaper closed this session, its handler sees the socket closed under it
+    boolean isReaped() {
+        return inFlight.get() == CLOSED;
+    }
+
+    // close every open session (drain), returns how many were closed
+    static int closeAll() {
+        int closed = 0;
+        for (Session session : sessions) {
+            try {
+                session.conn.close();
+                closed++;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return closed;
+    }
+
+    // sessions currently open
+    static int openCount() {
+        return sessions.size();
+    }
+
+    static long reaped() {
+        return reaped.get();
+    }
+
+    private static synchronized void startReaper() {
+        if (reaper != null || IDLE_TIMEOUT_MS <= 0) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "idle-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // checked a few times per timeout, so a session lives at most ~1.25 timeouts
+        long period = Math.max(1000, IDLE_TIMEOUT_MS / 4);
+        reaper.scheduleAtFixedRate(Session::reap, period, period, TimeUnit.MILLISECONDS);
+        ServerMetrics.gauge("reaped", Session::reaped);
+    }
+
+    private static long idleMs(Session session, long now) {
+        return TimeUnit.NANOSECONDS.toMillis(now - session.lastActive);
+    }
+
+    // close the sessions that sat idle for longer than IDLE_TIMEOUT_MS
+    private static void reap() {
+        long now = System.nanoTime();
+        int closed = 0;
+        for (Session session : sessions) {
+            if (idleMs(session, now) <= IDLE_TIMEOUT_MS || !session.inFlight.compareAndSet(0, CLAIMED)) {
+                continue; // active, or a request is in flight
+            }
+            if (idleMs(session, System.nanoTime()) <= IDLE_TIMEOUT_MS) {
+                session.inFlight.set(0); // a request came and went since the first check
+                continue;
+            }
+            session.inFlight.set(CLOSED);
+            sessions.remove(session);
+            try {
+                session.conn.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            closed++;
+        }
+        if (closed > 0) {
+            reaped.addAndGet(closed);
+            Log.debug("Reaped " + closed + " idle sessions, " + reaped.get() + " in total");
+        }
+    }
+}
@@ -1,32 +1,236 @@
 package taskone;
 
-import java.util.List;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
 
+// insertion ordered, duplicate free list of strings that is safe to share between threads
+// a hash index answers add/contains in O(1), an append-only log keeps the order
 class StringList {
-    // make list private for encapsulation
-    private List<String> strings = new ArrayList<String>();
+    // log is split into fixed size chunks so growing never copies the strings themselves
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
 
-    // synchronized method to add a string (keep thread-safe)
-    public synchronized void add(String str) {
-        int pos = strings.indexOf(str);
-        if (pos < 0) {
-            strings.add(str);
+    // put a bloom filter in front of the index, -Dlist.bloom=true
+    static final boolean BLOOM = Boolean.getBoolean("list.bloom");
+
+    // hash index used for dedup and contains
+    private final ConcurrentHashMap<String, Boolean> index = new ConcurrentHashMap<>();
+
+    // append-only log, only writers that win the index race append (under appendLock)
+    private final Object appendLock = new Object();
+    private volatile String[][] chunks = new String[1][];
+    // number of published entries, written after the slot so readers never see a hole
+    private volatile int count = 0;
+    // last rendered snapshot, replaced the first time it is read after an add
+    private volatile Snapshot snapshot = new Snapshot(0, "[]");
+    // write-ahead log of new strings, null for a purely in-memory list
+    private final WriteAheadLog wal;
+    // answers contains misses without the index, null unless enabled
+    private final BloomFilter filter;
+
+    StringList() {
+        this(BLOOM);
+    }
+
+    StringList(boolean bloom) {
+        wal = null;
+        filter = bloom ? new BloomFilter() : null;
+    }
+
+    // persistent list, restored from dir and logging every new string there
+    StringList(Path dir) throws IOException {
+        filter = BLOOM ? new BloomFilter() : null;
+        wal = new WriteAheadLog(dir, this::get);
+        wal.recover(str -> {
+            if (index.putIfAbsent(str, Boolean.TRUE) == null) {
+                synchronized (appendLock) {
+                    append(str);
+                }
+            }
+        });
+    }
+
+    // in-memory list, or a persistent one when started with -Dwal.dir=<directory>
+    static StringList create() {
+        String dir = System.getProperty("wal.dir");
+        if (dir == null) {
+            return new StringList();
+        }
+        return open(Paths.get(dir));
+    }
+
+    // list for a namespace, persistent ones live in a sub directory named after it
+    static StringList create(String namespace) {
+        String dir = System.getProperty("wal.dir");
+        if (dir == null) {
+            return new StringList();
+        }
+        return open(Paths.get(dir, namespace));
+    }
+
+    private static StringList open(Path dir) {
+        try {
+            return new StringList(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    // sychronized method to check contain (keep thread-safe)
-    public synchronized boolean contains(String str) {
-        return strings.indexOf(str) >= 0;
+    // add a string if it is not already present (keep thread-safe)
+    // a persistent list only returns once the string is on disk
+    // (throws IllegalStateException once its write-ahead log is closed)
+    public void add(String str) {
+        if (index.putIfAbsent(str, Boolean.TRUE) != null) {
+            return; // duplicate
+        }
+        long seq = 0;
+        synchronized (appendLock) {
+            int pos = append(str);
+            if (wal != null) {
+                seq = wal.append(pos, str); // log order matches list order
+            }
+        }
+        if (wal != null) {
+            wal.awaitDurable(seq); // group commit, shares an fsync with concurrent adds
+        }
     }
 
-    // sychronized method to get size (keep thread-safe)
-    public synchronized int size() {
-        return strings.size();
+    // add every string not already present, a persistent list waits for one fsync for all of them
+    public void addAll(Iterable<String> strs) {
+        long seq = 0;
+        for (String str : strs) {
+            if (index.putIfAbsent(str, Boolean.TRUE) != null) {
+                continue; // duplicate
+            }
+            synchronized (appendLock) {
+                int pos = append(str);
+                if (wal != null) {
+                    seq = wal.append(pos, str);
+                }
+            }
+        }
+        if (wal != null && seq > 0) {
+            wal.awaitDurable(seq); // records are forced in order, so the last one covers the batch
+        }
     }
 
-    // sychronized method to return string representation (keep thread-safe)
-    public synchronized String toString() {
-        return strings.toString();
+    // force the write-ahead log (if any) and stop its threads
+    public void close() throws IOException {
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    // append to the in-memory log, caller holds appendLock, returns the position of str
+    private int append(String str) {
+        int pos = count;
+        int chunk = pos >>> CHUNK_BITS;
+        String[][] current = chunks;
+        if (chunk == current.length) {
+            String[][] grown = new String[current.length * 2][];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+            chunks = current;
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new String[CHUNK_SIZE];
+        }
+        current[chunk][pos & CHUNK_MASK] = str;
+        if (filter != null) {
+            filter.put(str, pos, this::get); // before publishing, contains checks it first
+        }
+        count = pos + 1; // publish
+        return pos;
+    }
+
+    // entry at position i, i must be below a previously read size()
+    String get(int i) {
+        return chunks[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    // lock-free check through the hash index, behind the bloom filter if there is one
+    // (with a filter, a string that is still being added may only show up once appended)
+    public boolean contains(String str) {
+        if (filter == null) {
+            return index.containsKey(str);
+        }
+        if (!filter.mightContain(str)) {
+            filter.miss();
+            return false;
+        }
+        if (index.containsKey(str)) {
+            filter.hit();
+            return true;
+        }
+        filter.falsePositive();
+        return false;
+    }
+
+    // bloom filter statistics, null when the list has no filter
+    BloomFilter filter() {
+        return filter;
+    }
+
+    // lock-free size, volatile read of the published count
+    public int size() {
+        return count;
+    }
+
+    // string representation of the published entries, same format as ArrayList.toString
+    public String toString() {
+        return snapshot().text;
+    }
+
+    // immutable view of the list at some version, only re-rendered when an add happened
+    // the version is the entry count, the log is append-only so that identifies the contents
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        int size = count;
+        if (current.version == size) {
+            return current;
+        }
+        // racing readers may both rebuild, either result is a valid snapshot
+        Snapshot rebuilt = new Snapshot(size, toString(0, size));
+        if (rebuilt.version > snapshot.version) {
+            snapshot = rebuilt;
+        }
+        return rebuilt;
+    }
+
+    // string representation of up to limit entries starting at offset (for paged display)
+    public String toString(int offset, int limit) {
+        int size = count; // read count first, everything below it is visible
+        String[][] current = chunks;
+        int end = (int) Math.min((long) offset + limit, size);
+        if (offset < 0 || offset >= end) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = offset; i < end; i++) {
+            if (i > offset) {
+                sb.append(", ");
+            }
+            sb.append(current[i >>> CHUNK_BITS][i & CHUNK_MASK]);
+        }
+        return sb.append(']').toString();
+    }
+
+    // rendered list at a given version, callers can cache derived data (e.g. encoded json) on it
+    static final class Snapshot {
+        final int version;
+        final String text;
+        // lazily encoded display responses for this version, see Performer.displayBytes
+        volatile byte[] displayBytes;
+        volatile byte[] displayProto;
+
+        Snapshot(int version, String text) {
+            this.version = version;
+            this.text = text;
+        }
     }
-}
\ No newline at end of file
+}
@@ -14,13 +14,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 import org.json.JSONObject;
-import org.json.JSONException;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class : ThreadedPoolServer
@@ -29,99 +34,127 @@ import java.util.concurrent.ExecutorService;
 class ThreadedPoolServer {
 
     // static variables accessible accross method and classes within ThreadedPoolServer
-    static StringList strings = new StringList();
+    static StringList strings = StringList.create(); // persistent under -Dwal.dir
     static Performer performer = new Performer(strings);
-    static ExecutorService pool;
+    static ThreadPoolExecutor pool;
+
+    // shortest retry hint sent to rejected clients
+    static final long MIN_RETRY_AFTER_MS = 500;
+
+    // admission metrics, wait is the time a session spent queued before a pool thread took it
+    static final AtomicLong admitted = new AtomicLong();
+    static final AtomicLong rejected = new AtomicLong();
+    static final AtomicLong totalWaitNanos = new AtomicLong();
+    static final AtomicLong maxWaitNanos = new AtomicLong();
 
     public static void main(String[] args) throws Exception {
         // Setup
         // initialize variables (defaults)
         int port = 8000;
         int poolSize = 2;
+        int queueSize = 8;
 
-        // parse cli args for port & poolSize
+        // parse cli args for port, poolSize & queueSize
         try {
             port = Integer.parseInt(args[0]);
             poolSize = Integer.parseInt(args[1]);
+            if (args.length > 2) {
+                queueSize = Integer.parseInt(args[2]);
+            }
         } catch (NumberFormatException e) {
-            System.out.println("[Port] and [Pool] must be integers");
+            System.out.println("[Port], [Pool] and [Queue] must be integers");
             System.exit(2); // .exit(2) for CLI args
         }
 
-        // fixed thread pool w/ specified pool size
-        pool = Executors.newFixedThreadPool(poolSize);
+        // fixed thread pool w/ specified pool size and a bounded wait queue
+        // sessions that do not fit are turned away with a busy error instead of hanging
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new BusyPolicy());
+        ServerMetrics.gauge("queued", () -> pool.getQueue().size());
+        ServerMetrics.gauge("poolActive", pool::getActiveCount);
+        ServerMetrics.gauge("admitted", admitted::get);
+        ServerMetrics.gauge("rejected", rejected::get);
+        ServerMetrics.gauge("maxWaitMs", () -> TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+
+        // listen for client connections on port, -Dacceptors=<n> accept in parallel
+        Listener server = new Listener(port);
+        // graceful shutdown on SIGTERM / ctrl-c, sessions still waiting in the queue are turned away
+        Drain.install(server, performer, ThreadedPoolServer::rejectQueued);
+        System.out.println("Server Started with pool size " + poolSize + " and queue size " + queueSize
+                + ", " + server.describe() + "...");
+
+        // accept new client connections, submit a new ClientTask to the thread pool for each
+        // (a full queue rejects it right on the acceptor, see BusyPolicy)
+        server.serve(conn -> pool.execute(new ClientTask(conn)));
+    }
 
-        // ServerSocket listen for client connections on port
-        ServerSocket server = new ServerSocket(port);
-        System.out.println("Server Started with pool size " + poolSize + "...");
+    // queue depth and wait time summary, used to size the pool
+    static String metrics() {
+        long count = admitted.get();
+        long avgWaitMs = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count);
+        return "[queued=" + (pool == null ? 0 : pool.getQueue().size())
+                + " active=" + (pool == null ? 0 : pool.getActiveCount())
+                + " admitted=" + count + " rejected=" + rejected.get()
+                + " avgWaitMs=" + avgWaitMs
+                + " maxWaitMs=" + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()) + "]";
+    }
 
-        // accept new client connections
-        while (true) {
-            System.out.println("Accepting a Request...");
-            // accept() blocks until connection is made
-            Socket conn = server.accept();
-            // submit new ClientTask to thread pool for execution
-            pool.execute(new ClientTask(conn));
+    // turn away the sessions no pool thread has picked up yet
+    static void rejectQueued() {
+        List<Runnable> queued = new ArrayList<>();
+        pool.getQueue().drainTo(queued);
+        for (Runnable task : queued) {
+            rejected.incrementAndGet();
+            ((ClientTask) task).reject(Drain.RETRY_AFTER_MS);
+        }
+    }
+
+    // retry hint for rejected clients, roughly how long admitted sessions have been waiting
+    static long retryAfterMs() {
+        long count = admitted.get();
+        long avgWaitMs = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count);
+        return Math.max(MIN_RETRY_AFTER_MS, avgWaitMs);
+    }
+
+    // rejection policy for a full queue, runs on the acceptor thread
+    static class BusyPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.incrementAndGet();
+            ((ClientTask) task).reject(retryAfterMs());
         }
     }
 
     // inner class ClientTask implements Runnable so each instance can be executed by thread pool
     static class ClientTask implements Runnable {
         private Socket conn;
+        private final long queuedAt = System.nanoTime();
 
         // initializes ClientTask w/ specific conn
         public ClientTask(Socket socket) {
             this.conn = socket;
         }
 
+        // tell the client to come back later and drop the connection
+        void reject(long retryAfterMs) {
+            try (Socket socket = conn) {
+                NetworkUtils.send(socket.getOutputStream(), JsonUtils.toByteArray(Performer.busy(retryAfterMs)));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
         @Override // good practice to @Override interface/abstract method implemenations
         public void run() {
-            boolean quit = false; // close conn flag
-
-            // attempt to establish input/output connection
-            try (OutputStream out = conn.getOutputStream(); InputStream in = conn.getInputStream()) {
-                System.out.println("Server connected to client : ThreadedPoolServer"); // debugging
-
-                while (!quit) {
-                    // doPerform logic here
-
-                    byte[] messageBytes = NetworkUtils.receive(in);
-                    JSONObject message = JsonUtils.fromByteArray(messageBytes);
-                    JSONObject returnMessage;
-
-                    try {
-                        int choice = message.getInt("selected");
-                        switch (choice) {
-                            case (1): // handle Add
-                                String inStr = (String) message.get("data");
-                                returnMessage = performer.add(inStr);
-                                break;
-                            case (3): // handle Display
-                                returnMessage = performer.display();
-                                break;
-                            case (4): // handle Count
-                                returnMessage = performer.count();
-                                break;
-                            case (0): // handle Quit
-                                returnMessage = performer.quit();
-                                quit = true; // while loop flag to close connection
-                                break;
-                            default:
-                                returnMessage = performer.error("Invalid selection: " + choice + " is not an option");
-                                break;
-                        }
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                        returnMessage = Performer.error("Invalid request: " + e.getMessage());
-                    }
-
-                    byte[] output = JsonUtils.toByteArray(returnMessage);
-                    NetworkUtils.send(out, output);
-                }
-                System.out.println("Client disconnected"); //debugging
-            } catch (IOException | InterruptedException e) {
-                e.printStackTrace();
+            // how long this session sat in the queue
+            long waited = System.nanoTime() - queuedAt;
+            admitted.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (Log.DEBUG) {
+                Log.debug("Admitted client : ThreadedPoolServer " + metrics());
             }
+            new Connection(conn, performer, "ThreadedPoolServer", true).run();
         }
     }
 }
\ No newline at end of file
@@ -14,10 +14,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.ServerSocket;
 import java.net.Socket;
-import org.json.JSONObject;
-import org.json.JSONException;
 
 /**
  * Class : ThreadedServer
@@ -25,7 +22,7 @@ import org.json.JSONException;
  */
 class ThreadedServer {
     // shared across all threads
-    static StringList strings = new StringList();
+    static StringList strings = StringList.create(); // persistent under -Dwal.dir
     static Performer performer = new Performer(strings);
 
     public static void main(String[] args) throws Exception {
@@ -44,14 +41,11 @@ class ThreadedServer {
             System.exit(2);
         }
 
-        ServerSocket server = new ServerSocket(port);
-        System.out.println("Server Started...");
-        while (true) {
-            System.out.println("Accepting a Request...");
-            Socket conn = server.accept();
-            // create new thread for each client
-            new ClientHandler(conn).start();
-        }
+        Listener server = new Listener(port); // -Dacceptors=<n> accept in parallel
+        Drain.install(server, performer, null); // graceful shutdown on SIGTERM / ctrl-c
+        System.out.println("Server Started with " + server.describe() + "...");
+        // create new thread for each client
+        server.serve(conn -> new ClientHandler(conn).start());
     }
 
     // inner class to handle client in a thread
@@ -65,52 +59,7 @@ class ThreadedServer {
 
         @Override // good practice to @Override interface/abstract method implemenations
         public void run() {
-            boolean quit = false;
-
-            // attempt to establish input/output connection
-            try (OutputStream out = conn.getOutputStream(); InputStream in = conn.getInputStream()) {
-                System.out.println("Server connected to client : ThreadedServer"); // debugging
-
-                while (!quit) {
-                    // doPerform logic here
-
-                    byte[] messageBytes = NetworkUtils.receive(in);
-                    JSONObject message = JsonUtils.fromByteArray(messageBytes);
-                    JSONObject returnMessage;
-
-                    try {
-                        int choice = message.getInt("selected");
-                        switch (choice) {
-                            case (1): // handle Add
-                                String inStr = (String) message.get("data");
-                                returnMessage = performer.add(inStr);
-                                break;
-                            case (3): // handle Display
-                                returnMessage = performer.display();
-                                break;
-                            case (4): // handle Count
-                                returnMessage = performer.count();
-                                break;
-                            case (0): // handle Quit
-                                returnMessage = performer.quit();
-                                quit = true; // while loop flag to close connection
-                                break;
-                            default:
-                                returnMessage = performer.error("Invalid selection: " + choice + " is not an option");
-                                break;
-                        }
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                        returnMessage = Performer.error("Invalid request: " + e.getMessage());
-                    }
-
-                    byte[] output = JsonUtils.toByteArray(returnMessage);
-                    NetworkUtils.send(out, output);
-                }
-                System.out.println("Client disconnected"); //debugging
-            } catch (IOException | InterruptedException e) {
-                e.printStackTrace();
-            }
+            new Connection(conn, performer, "ThreadedServer", true).run();
         }
     }
 }
\ No newline at end of file
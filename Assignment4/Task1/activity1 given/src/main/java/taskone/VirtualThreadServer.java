@@ -0,0 +1,64 @@
+/**
+ * File : VirtualThreadServer.java
+ * Author : ndavispe
+ * Description : VirtualThreadServer class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class : VirtualThreadServer
+ * Description : Server tasks (multithreaded : one virtual thread per client)
+ *
+ * <p>Runs the shared Connection loop like the other blocking servers, but each connection gets
+ * its own virtual thread and there is no admission queue. Performer.add sleeps without holding a lock, so a parked virtual thread gives its
+ * carrier back and thousands of adds can be in flight at once.
+ */
+class VirtualThreadServer {
+
+    // shared across all threads
+    static StringList strings = StringList.create(); // persistent under -Dwal.dir
+    static Performer performer = new Performer(strings);
+    static ExecutorService pool;
+
+    public static void main(String[] args) throws Exception {
+        // Setup
+        int port = 8000; // default
+        if (args.length != 1) {
+            // gradle runVirtualServer -Pport=8000 -q --console=plain
+            System.out.println("Usage: gradle runVirtualServer -Pport=8000 -q --console=plain");
+            System.exit(1);
+        }
+        try {
+            port = Integer.parseInt(args[0]);
+        } catch (NumberFormatException nfe) {
+            System.out.println("[Port] must be an integer");
+            System.exit(2);
+        }
+
+        pool = newVirtualThreadPerTaskExecutor();
+
+        Listener server = new Listener(port); // -Dacceptors=<n> accept in parallel
+        Drain.install(server, performer, null); // graceful shutdown on SIGTERM / ctrl-c
+        System.out.println("Server Started with " + server.describe() + "...");
+        // a virtual thread per client
+        server.serve(conn -> pool.execute(new Connection(conn, performer, "VirtualThreadServer", true)));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() only exists on JDK 21+, look it up so the
+    // project still compiles on older JDKs and falls back to a cached platform thread pool
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads unavailable (JDK 21+ required), using platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * File : WireFormat.java
+ * Author : ndavispe
+ * Description : WireFormat enum in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.json.JSONObject;
+
+/**
+ * Enum : WireFormat
+ * Description : Payload encoding of a connection's frames
+ *
+ * <p>Every connection starts out in JSON. A format request (9) switches it to PROTOBUF, see
+ * ProtoCodec. Either way the servers work on the same Request and JSONObject responses, only
+ * the bytes in the frames change.
+ */
+enum WireFormat {
+    JSON {
+        Request decodeRequest(byte[] bytes, int length) {
+            return Request.fromJson(JsonUtils.fromByteArray(bytes, length));
+        }
+
+        byte[] encodeResponse(JSONObject response) {
+            return JsonUtils.toByteArray(response);
+        }
+
+        byte[] encodeRequest(JSONObject request) {
+            return JsonUtils.toByteArray(request);
+        }
+
+        JSONObject decodeResponse(byte[] bytes) {
+            return JsonUtils.fromByteArray(bytes);
+        }
+    },
+    PROTOBUF {
+        Request decodeRequest(byte[] bytes, int length) {
+            return ProtoCodec.decodeRequest(bytes, length);
+        }
+
+        byte[] encodeResponse(JSONObject response) {
+            return ProtoCodec.encodeResponse(response);
+        }
+
+        byte[] encodeRequest(JSONObject request) {
+            return ProtoCodec.encodeRequest(request);
+        }
+
+        JSONObject decodeResponse(byte[] bytes) {
+            return ProtoCodec.decodeResponse(bytes);
+        }
+    };
+
+    // server side, the first length bytes of a frame, throws JSONException if malformed
+    abstract Request decodeRequest(byte[] bytes, int length);
+
+    abstract byte[] encodeResponse(JSONObject response);
+
+    // client side
+    abstract byte[] encodeRequest(JSONObject request);
+
+    abstract JSONObject decodeResponse(byte[] bytes);
+
+    // format by the name used in format requests ("json" or "protobuf"), null if unknown
+    static WireFormat forName(String name) {
+        for (WireFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    // client side, ask the server to switch a fresh (still json) connection to this format
+    // returns the server's json answer, type "format" if it switched, null if it hung up
+    JSONObject negotiate(OutputStream out, InputStream in) throws IOException {
+        JSONObject request = new JSONObject();
+        request.put("selected", 9);
+        request.put("data", name().toLowerCase());
+        NetworkUtils.send(out, JsonUtils.toByteArray(request));
+        byte[] response = NetworkUtils.receive(in);
+        return response.length == 0 ? null : JsonUtils.fromByteArray(response);
+    }
+}
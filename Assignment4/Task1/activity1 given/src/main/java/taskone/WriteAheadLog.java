@@ -0,0 +1,365 @@
+/**
+ * File : WriteAheadLog.java
+ * Author : ndavispe
+ * Description : WriteAheadLog class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Class : WriteAheadLog
+ * Description : Append-only, memory mapped log of the strings added to a StringList
+ *
+ * <p>Every new string is appended to the active segment (strings-[base].log, base being the list
+ * index of its first record) and the adding thread then waits for the flusher thread to force it
+ * to disk. The flusher forces everything appended since its last pass at once, so concurrent adds
+ * share one fsync (group commit).
+ *
+ * <p>Once a segment holds COMPACT_RECORDS records a new one is started and the list up to that
+ * point is written to strings.snap in the background, after which the older segments are deleted.
+ * Startup loads the snapshot, only replays the segments written after it and keeps appending to the
+ * newest segment (a torn record at its end is cut off), so a restart does not start a new file.
+ *
+ * <p>Segment record: [int length + 1][int crc32][utf-8 bytes]. The mapped file is zero filled, so
+ * a zero length marks the end of the written part and a crc mismatch a torn write.
+ */
+class WriteAheadLog implements AutoCloseable {
+
+    static final String SNAPSHOT = "strings.snap";
+    // initial mapping of a segment, doubled whenever it fills up
+    static final int MAP_SIZE = 1 << 24;
+    // segments are rotated before they reach this size, a mapping is at most 2 GiB
+    static final int MAX_SEGMENT = 1 << 30;
+    // records per segment before a rotation + snapshot, -Dwal.compact=<records>
+    static final int COMPACT_RECORDS = Integer.getInteger("wal.compact", 1 << 20);
+
+    private final Path dir;
+    private final IntFunction<String> entries; // list entry by index, read by snapshots
+    private final int compactRecords;
+    private final CRC32 crc = new CRC32();
+
+    // active segment, only changed by the writer (which holds the StringList append lock)
+    private FileChannel channel;
+    private volatile MappedByteBuffer map;
+    private int records;
+
+    // group commit state, guarded by this
+    private long appended = 0; // records appended so far, a record's sequence number
+    private long durable = 0; // records known to be on disk
+    // set under writeLock and this, so an append either finishes before close() or sees it
+    private volatile boolean closed = false;
+    private final Object writeLock = new Object(); // held by append, uncontended but for close
+
+    private final Thread flusher;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "wal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    WriteAheadLog(Path dir, IntFunction<String> entries) throws IOException {
+        this(dir, entries, COMPACT_RECORDS);
+    }
+
+    WriteAheadLog(Path dir, IntFunction<String> entries, int compactRecords) throws IOException {
+        this.dir = dir;
+        this.entries = entries;
+        this.compactRecords = compactRecords;
+        Files.createDirectories(dir);
+        flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+    }
+
+    // feed the snapshot and the segments after it to sink in list order, then start logging
+    // returns the number of strings recovered
+    int recover(Consumer<String> sink) throws IOException {
+        int count = 0;
+        Path snapshot = dir.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            try (InputStream file = Files.newInputStream(snapshot);
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+                count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    sink.accept(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        long lastBase = -1; // newest segment, where its valid records end and how many it holds
+        int lastEnd = 0;
+        int lastRecords = 0;
+        for (Map.Entry<Long, Path> segment : segments().entrySet()) {
+            long index = segment.getKey();
+            lastBase = index;
+            lastEnd = 0;
+            lastRecords = 0;
+            try (FileChannel segmentChannel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                MappedByteBuffer records = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+                while (records.remaining() >= 8) {
+                    int length = records.getInt() - 1;
+                    int sum = records.getInt();
+                    if (length < 0 || length > records.remaining()) {
+                        break; // end of the written part
+                    }
+                    byte[] bytes = new byte[length];
+                    records.get(bytes);
+                    crc.reset();
+                    crc.update(bytes);
+                    if ((int) crc.getValue() != sum) {
+                        break; // torn write, nothing after it was acknowledged
+                    }
+                    lastEnd = records.position();
+                    lastRecords++;
+                    // segments older than the snapshot may still be around if deleting them failed
+                    if (index++ >= count) {
+                        sink.accept(new String(bytes, StandardCharsets.UTF_8));
+                        count++;
+                    }
+                }
+            }
+        }
+
+        // new strings go after everything recovered, in the newest segment if it ends there
+        if (lastBase >= 0 && lastBase + lastRecords == count) {
+            reopenSegment(lastBase, lastEnd, lastRecords);
+        } else {
+            openSegment(count);
+        }
+        flusher.start();
+        return count;
+    }
+
+    // append str (list position index), only called with the StringList append lock held
+    // returns the sequence number to pass to awaitDurable, throws IllegalStateException once
+    // closed, nothing would force the record anymore and awaitDurable would never return
+    long append(int index, String str) {
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            return write(index, str);
+        }
+    }
+
+    private long write(int index, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        int size = 8 + bytes.length;
+        try {
+            if (records >= compactRecords || (long) map.position() + size > MAX_SEGMENT) {
+                rotate(index);
+            }
+            if (map.remaining() < size) {
+                grow(size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        crc.reset();
+        crc.update(bytes);
+        map.putInt(bytes.length + 1).putInt((int) crc.getValue()).put(bytes);
+        records++;
+        synchronized (this) {
+            appended++;
+            notifyAll(); // wake the flusher
+            return appended;
+        }
+    }
+
+    // block until record seq is on disk
+    synchronized void awaitDurable(long seq) {
+        boolean interrupted = false;
+        while (durable < seq) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true; // the add is already in the list, it has to be logged
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // force everything appended and stop the background threads
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+        }
+        try {
+            flusher.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        map.force();
+        markDurable(appendedSoFar());
+        channel.close();
+    }
+
+    // one fsync for every record appended since the last pass
+    private void flushLoop() {
+        while (true) {
+            long target;
+            MappedByteBuffer current;
+            synchronized (this) {
+                while (appended == durable && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (appended == durable) {
+                    return; // closed and nothing left to flush
+                }
+                target = appended;
+                current = map; // older mappings were forced before they were replaced
+            }
+            current.force();
+            markDurable(target);
+        }
+    }
+
+    private synchronized void markDurable(long upTo) {
+        if (upTo > durable) {
+            durable = upTo;
+            notifyAll();
+        }
+    }
+
+    private synchronized long appendedSoFar() {
+        return appended;
+    }
+
+    // remap the active segment with at least size more bytes, the file grows with the mapping
+    private void grow(int size) throws IOException {
+        MappedByteBuffer old = map;
+        int position = old.position();
+        long capacity = Math.min(Math.max((long) old.capacity() * 2, (long) position + size), MAX_SEGMENT);
+        old.force();
+        markDurable(appendedSoFar());
+        MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        grown.position(position);
+        map = grown;
+    }
+
+    // start a new segment at list index and snapshot everything before it
+    private void rotate(int index) throws IOException {
+        FileChannel oldChannel = channel;
+        map.force();
+        markDurable(appendedSoFar());
+        openSegment(index);
+        oldChannel.close(); // the old mapping stays valid until it is collected
+        compactor.execute(() -> snapshot(index));
+    }
+
+    private void openSegment(long base) throws IOException {
+        // a segment with the same base can only be left over without any valid record
+        channel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, MAP_SIZE);
+        records = 0;
+        syncDir(); // the new file itself has to survive a crash
+    }
+
+    // continue the segment at base after its end records, a torn tail past end is cut off
+    private void reopenSegment(long base, int end, int segmentRecords) throws IOException {
+        channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long capacity = Math.min(Math.max(channel.size(), MAP_SIZE), MAX_SEGMENT);
+        channel.truncate(end); // mapping it again zero fills the rest
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        map.position(end);
+        records = segmentRecords;
+    }
+
+    // write the first upTo entries to the snapshot, then drop the segments it covers
+    private void snapshot(int upTo) {
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(upTo);
+                for (int i = 0; i < upTo; i++) {
+                    byte[] bytes = entries.apply(i).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            syncDir();
+            for (Map.Entry<Long, Path> segment : segments().entrySet()) {
+                if (segment.getKey() < upTo) {
+                    Files.deleteIfExists(segment.getValue());
+                }
+            }
+        } catch (IOException e) {
+            // the segments are still there, recovery just replays more of them
+            e.printStackTrace();
+        }
+    }
+
+    // segment files by base index
+    private TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "strings-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(8, name.length() - 4)), file);
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("strings-%010d.log", base));
+    }
+
+    // persist directory entries (created / renamed files), not supported on every platform
+    private void syncDir() {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+}
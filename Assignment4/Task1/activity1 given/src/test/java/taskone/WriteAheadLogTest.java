@@ -0,0 +1,131 @@
+/**
+ * File : WriteAheadLogTest.java
+ * Author : ndavispe
+ * Description : WriteAheadLogTest class in package taskone
+ */
+
+package taskone;
+
+/* --- Imports --- */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Class : WriteAheadLogTest
+ * Description : Recovery of the write-ahead log after restarts, torn writes and compaction
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    // the list a WriteAheadLog belongs to, filled by recover() and add()
+    private final List<String> list = new ArrayList<>();
+
+    private WriteAheadLog open(int compactRecords) throws IOException {
+        list.clear();
+        WriteAheadLog wal = new WriteAheadLog(dir, list::get, compactRecords);
+        wal.recover(list::add);
+        return wal;
+    }
+
+    // like StringList.add, the entry is in the list before it is logged
+    private void add(WriteAheadLog wal, String str) {
+        list.add(str);
+        wal.awaitDurable(wal.append(list.size() - 1, str));
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "strings-*.log")) {
+            files.forEach(segments::add);
+        }
+        return segments;
+    }
+
+    @Test
+    void restartKeepsAppendingToTheSameSegment() throws IOException {
+        for (int run = 0; run < 3; run++) {
+            try (WriteAheadLog wal = open(1 << 20)) {
+                add(wal, "run" + run);
+            }
+        }
+        open(1 << 20).close();
+        assertEquals(List.of("run0", "run1", "run2"), list);
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void tornRecordIsDroppedAndOverwritten() throws IOException {
+        try (WriteAheadLog wal = open(1 << 20)) {
+            add(wal, "one");
+            add(wal, "two");
+            add(wal, "three");
+        }
+
+        // corrupt the last byte of "three", as if the crash hit while it was written
+        int end = 3 * 8 + "onetwothree".length();
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), end - 1);
+        }
+
+        try (WriteAheadLog wal = open(1 << 20)) {
+            assertEquals(List.of("one", "two"), list);
+            add(wal, "four");
+        }
+        open(1 << 20).close();
+        assertEquals(List.of("one", "two", "four"), list);
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void compactionSnapshotsAndDeletesOldSegments() throws IOException {
+        try (WriteAheadLog wal = open(4)) {
+            for (int i = 0; i < 10; i++) {
+                add(wal, "s" + i);
+            }
+        } // close waits for the compactor
+
+        assertTrue(Files.exists(dir.resolve(WriteAheadLog.SNAPSHOT)));
+        List<Path> segments = segments();
+        assertEquals(1, segments.size()); // only the one after the last snapshot
+        assertEquals("strings-0000000008.log", segments.get(0).getFileName().toString());
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add("s" + i);
+        }
+        try (WriteAheadLog wal = open(4)) {
+            assertEquals(expected, list);
+            add(wal, "s10");
+            expected.add("s10");
+        }
+        open(4).close();
+        assertEquals(expected, list);
+    }
+
+    @Test
+    void appendAfterCloseThrows() throws IOException {
+        WriteAheadLog wal = open(1 << 20);
+        add(wal, "one");
+        wal.close();
+
+        // nothing forces the log after close, so awaitDurable would never return
+        assertThrows(IllegalStateException.class, () -> wal.append(1, "two"));
+        open(1 << 20).close();
+        assertEquals(List.of("one"), list);
+    }
+}
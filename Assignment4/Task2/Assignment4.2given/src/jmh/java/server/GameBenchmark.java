@@ -0,0 +1,64 @@
+package server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class: GameBenchmark
+ * Description: Move validation and win detection, scanning the board (the old path) against the
+ * row/column/box bitmasks Game keeps up to date.
+ * Plays the grading board up to its last blank cell (row 9, column 5), the worst case for the scans:
+ * every check has to look at full rows, columns and grids, and checkWonByScan at 80 cells before it
+ * finds the blank. Run with -prof gc to see the scans allocate and the masks don't.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    private static final int ROW = 8, COL = 4, VALUE = 1; // last blank and its solution (0 based)
+
+    Game game;
+
+    @Setup
+    public void play() {
+        game = new Game();
+        game.newGame(true, 1);
+        // solution of the grading board, all blanks but the last
+        int[][] moves = {{0, 4, 7}, {0, 7, 8}, {1, 5, 2}, {7, 0, 9}, {7, 3, 2}, {8, 1, 5}};
+        for (int[] move : moves) {
+            game.updateBoard(move[0], move[1], move[2], 0);
+        }
+    }
+
+    // old path: three scans building a String each, the cell is blank so nothing is found
+    @Benchmark
+    public int checkMoveScan() {
+        return game.checkMove(ROW, COL);
+    }
+
+    @Benchmark
+    public int checkMoveMasks() {
+        return game.checkMove(ROW, COL, VALUE);
+    }
+
+    // a value already in the row, found by the first mask
+    @Benchmark
+    public int checkMoveMasksRejected() {
+        return game.checkMove(ROW, COL, 9);
+    }
+
+    @Benchmark
+    public boolean checkWonScan() {
+        return game.checkWonByScan();
+    }
+
+    @Benchmark
+    public boolean checkWonMasks() {
+        return game.checkWon();
+    }
+}
@@ -0,0 +1,43 @@
+package server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class: GeneratorBenchmark
+ * Description: Boards per millisecond the Generator makes at the easiest and the hardest difficulty,
+ * and the cost of one uniqueness check on a generated puzzle. A START takes its board from the
+ * PuzzlePool, which refills at this rate in the background.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"1", "10", "20"})
+    int difficulty;
+
+    Random random;
+    Generator.Puzzle puzzle;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        puzzle = Generator.generate(difficulty, random);
+    }
+
+    @Benchmark
+    public Generator.Puzzle generate() {
+        return Generator.generate(difficulty, random);
+    }
+
+    @Benchmark
+    public int countSolutions() {
+        return Generator.countSolutions(puzzle.cells, 2);
+    }
+}
@@ -0,0 +1,202 @@
+package server;
+
+import buffers.RequestProtos.Logs;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Class: EventLog
+ * Description: Append only log of the server's events (logins, ...), written by one background thread.
+ * append() only queues the entry, so a session never waits for the disk and never reads the log.
+ * The writer takes whatever is queued (up to MAX_BATCH entries) and appends it as one length delimited
+ * Logs message, so under load many entries share one write. Once the active file reaches SEGMENT_BYTES
+ * it is renamed to name.1, name.2, ... (oldest first) and a new one is started. Every segment is kept,
+ * the leaderboard counts logins over the whole history when it is rebuilt at startup, rotation only
+ * keeps the file that is appended to (and checked for a torn record on open) small.
+ * A record cut short by a crash is dropped when the log is opened again.
+ */
+class EventLog implements Closeable {
+
+    static final int MAX_BATCH = 512; // entries per record
+    static final long SEGMENT_BYTES = 1 << 20; // rotate the active file at 1 MiB
+    private static final int QUEUE_CAPACITY = 1 << 16; // append() blocks beyond this, the disk can't keep up
+    private static final Object STOP = new Object(); // queued by close(), never a log entry
+
+    private final Path file;
+    private final BlockingQueue<Object> pending = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private OutputStream out; // writer thread only
+    private long size;        // bytes in the active file, writer thread only
+
+    EventLog(String filename) throws IOException {
+        this.file = Paths.get(filename).toAbsolutePath();
+        size = recover(file);
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true));
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an entry, it is written shortly after by the writer thread
+     */
+    void append(String entry) {
+        queue(entry);
+    }
+
+    private void queue(Object entry) {
+        try {
+            pending.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Every entry written so far (all segments, oldest first), entries still queued are not included
+     */
+    void replay(Consumer<String> entries) {
+        for (Path segment : segments(file)) {
+            read(segment, batch -> batch.getLogList().forEach(entries));
+        }
+    }
+
+    /**
+     * Writes what is still queued and stops the writer
+     */
+    @Override
+    public void close() throws IOException {
+        queue(STOP);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // writer thread: wait for an entry, take everything else that queued up meanwhile, write it as one record
+    private void write() {
+        List<Object> taken = new ArrayList<>(MAX_BATCH);
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                taken.add(pending.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            pending.drainTo(taken, MAX_BATCH - 1);
+            for (Object entry : taken) {
+                if (entry == STOP) {
+                    stopping = true; // entries queued before close() are still written below
+                } else {
+                    batch.add((String) entry);
+                }
+            }
+            taken.clear();
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                Logs record = Logs.newBuilder().addAllLog(batch).build();
+                int bytes = record.getSerializedSize();
+                record.writeDelimitedTo(out);
+                out.flush();
+                size += CodedOutputStream.computeUInt32SizeNoTag(bytes) + bytes; // length prefix and record
+                if (size >= SEGMENT_BYTES) {
+                    rotate();
+                }
+            } catch (IOException e) {
+                System.out.println("Error writing log: " + e.getMessage());
+            }
+            batch.clear();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Error closing log: " + e.getMessage());
+        }
+    }
+
+    // close the active file, move it behind the newest segment and start an empty one
+    private void rotate() throws IOException {
+        out.close();
+        TreeMap<Integer, Path> rotated = rotated(file);
+        int next = rotated.isEmpty() ? 1 : rotated.lastKey() + 1;
+        Path moved = file.resolveSibling(file.getFileName() + "." + next);
+        Files.move(file, moved);
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true));
+        size = 0;
+    }
+
+    // the renamed files then name itself (if it exists), the order entries were written in
+    private static List<Path> segments(Path file) {
+        List<Path> segments = new ArrayList<>(rotated(file).values());
+        if (Files.exists(file)) {
+            segments.add(file);
+        }
+        return segments;
+    }
+
+    // renamed files by number, oldest first
+    private static TreeMap<Integer, Path> rotated(Path file) {
+        TreeMap<Integer, Path> rotated = new TreeMap<>();
+        String prefix = file.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(file.getParent(), prefix + "*")) {
+            for (Path segment : files) {
+                try {
+                    rotated.put(Integer.parseInt(segment.getFileName().toString().substring(prefix.length())), segment);
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error listing log segments: " + e.getMessage());
+        }
+        return rotated;
+    }
+
+    // hands every complete record of a segment to records, returns the bytes those records take up
+    private static long read(Path segment, Consumer<Logs> records) {
+        long valid = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(segment))) {
+            CodedInputStream coded = CodedInputStream.newInstance(in);
+            coded.setSizeLimit(Integer.MAX_VALUE);
+            while (!coded.isAtEnd()) {
+                int length = coded.readRawVarint32();
+                Logs record = Logs.parseFrom(coded.readRawBytes(length));
+                valid = coded.getTotalBytesRead();
+                records.accept(record);
+            }
+        } catch (IOException e) {
+            // a record cut short by a crash, everything before it is fine
+        }
+        return valid;
+    }
+
+    // cut off a partly written last record, so new records are appended after a complete one
+    private static long recover(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long valid = read(file, record -> { });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > valid) {
+                System.out.println("Dropping " + (channel.size() - valid) + " bytes of a partly written log record");
+                channel.truncate(valid);
+            }
+        }
+        return valid;
+    }
+}
@@ -30,6 +30,13 @@ public class Game {
     private boolean[][] isPreset = new boolean[size][size];
     private int difficulty = 1;
 
+    // digits on the player board, bit v set if v is in that row / column / 3x3 box
+    // kept up to date by every write to playerBoard (see put), so checking a move and a win is O(1)
+    private final int[] rowDigits = new int[size];
+    private final int[] colDigits = new int[size];
+    private final int[] boxDigits = new int[size];
+    private int blanks = 0; // 'X' cells left on the player board
+
     private int points = 0;
 
     private boolean won; // if the game is won or not
@@ -64,8 +71,7 @@ public class Game {
         if (won) {
             won = false;
             if (!grading) {
-                create(); // generate solved board
-                prepareForPlay(); // apply difficulty to hide cells
+                load(PuzzlePool.shared().take(difficulty)); // generated board, one solution
             } else {
                 // load grading board
                 String[] inputData = {
@@ -88,7 +94,7 @@ public class Game {
                     for (int j = 0; j < size; j++) {
                         char ch = line.charAt(j);
                         referenceBoard[i][j] = ch;  // Assign each character
-                        playerBoard[i][j] = ch;
+                        put(i, j, ch);
                         // mark preset if not blank
                         isPreset[i][j] = (ch != 'X');
                     }
@@ -119,103 +125,24 @@ public class Game {
     }
 
 
-    ////////////////////////
-    // The next three methods are used in the game to create a new random board, you should not need to touch or call them
     /**
-     * Creates a completely new Sudoku board (should not need to be changed)
+     * Puts a generated puzzle on the board (see Generator), the blanks become X
+     * Package private so tests can load a board of their own
      * @return Nothing.
      */
-    public void create() {
-
-        List<Integer> numbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9));
-        Collections.shuffle(numbers);
-
-        List<Integer> positions = new ArrayList<>(Arrays.asList(0, 3, 6, 1, 4, 7, 2, 5, 8));
-
-        List<Integer> rows = shuffle();
-        List<Integer> columns = shuffle();
-
-        for (int row = 0; row < rows.size(); row++) {
-            List<Integer> newRow = new ArrayList<>();
-            for (int col = 0; col < columns.size(); col++) {
-                int position = (positions.get(row) + col) % numbers.size();
-                newRow.add(numbers.get(position));
-            }
-            int i = 0;
-            for (Integer num : newRow) {
-                solvedBoard[row][i++] = (char) (num + '0');
-            }
-        }
-
-        for (int row = 0; row < rows.size(); row++) {
-            for (int col = 0; col < columns.size(); col++) {
-                char val = solvedBoard[row][col];
-                solvedBoard[row][col] = val;
-                playerBoard[row][col] = val;
+    void load(Generator.Puzzle puzzle) {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = puzzle.cells[row * size + col];
+                char val = cell == 0 ? 'X' : (char) (cell + '0');
+                solvedBoard[row][col] = (char) (puzzle.solution[row * size + col] + '0');
                 referenceBoard[row][col] = val;
-                // all filled spot is a preset
-                isPreset[row][col] = true;
+                put(row, col, val);
+                isPreset[row][col] = cell != 0;
             }
         }
     }
 
-    /**
-     * Creates a completely new Sudoku board with Xs
-     * @return Nothing.
-     */
-    private void prepareForPlay() {
-        int empties = difficulty; // use parsed difficulty
-
-        int maxCells = (int) Math.ceil((double) (size * size) / 2);
-        List<Integer> allCells = new ArrayList<>();
-        for (int i = 0; i < maxCells; i++) {
-            allCells.add(i);
-        }
-
-        Collections.shuffle(allCells);
-
-        List<Integer> cells = allCells.subList(0, Math.min(empties, allCells.size()));
-
-        for (Integer cell : cells) {
-            int row = cell / size;
-            int col = cell % size;
-            int row2 = 8 - row, col2 = 8 - col;
-
-            playerBoard[row][col]         = 'X';
-            playerBoard[row2][col2]       = 'X';
-
-            referenceBoard[row][col]      = 'X';
-            referenceBoard[row2][col2]    = 'X';
-
-            // no longer presets
-            isPreset[row][col]            = false;
-            isPreset[row2][col2]          = false;
-        }
-    }
-
-    /**
-     * Creates a completely new Sudoku board (should not need to be changed)
-     * @return Nothing.
-     */
-    private List<Integer> shuffle() {
-        List<Integer> first = new ArrayList<>(Arrays.asList(0, 1, 2));
-        List<Integer> second = new ArrayList<>(Arrays.asList(3, 4, 5));
-        List<Integer> third = new ArrayList<>(Arrays.asList(6, 7, 8));
-
-        Collections.shuffle(first);
-        Collections.shuffle(second);
-        Collections.shuffle(third);
-
-        List<Integer> numbers = new ArrayList<>();
-        numbers.addAll(first);
-        numbers.addAll(second);
-        numbers.addAll(third);
-
-        Collections.shuffle(numbers);
-
-        return numbers;
-    }
-
     /**
      * Good to use for an UPDATE call
      * Method changes the given row column with value if type is 0 and the move is valid.
@@ -233,27 +160,29 @@ public class Game {
                 resultType =  1; // the original number so cannot replace
 
             } else {
-                // not original number so replacing
-                playerBoard[row][column] = (char) (value + '0');
-                int moveOK = checkMove(row, column);
+                // not original number so replacing, a rejected move leaves the cell cleared
+                put(row, column, referenceBoard[row][column]);
+                int moveOK = checkMove(row, column, value);
                 if (moveOK == 0) {
+                    put(row, column, (char) (value + '0'));
                     won = checkWon();
                     resultType =  0;
                 } else {
-                    playerBoard[row][column] = referenceBoard[row][column];
                     resultType = moveOK;
                 }
             }
         } else if (type == 1) {
             // type 1 is clearing a single cell back to 'X'
-            playerBoard[row][column] = referenceBoard[row][column];
+            put(row, column, referenceBoard[row][column]);
         } else if (type == 2) {
             // clear row back to original
-            if (size >= 0) System.arraycopy(referenceBoard[row], 0, playerBoard[row], 0, size);
+            for (int j = 0; j < size; j++) {
+                put(row, j, referenceBoard[row][j]);
+            }
         } else if (type == 3) {
             // clear col back to original
             for (int i = 0; i < size; i++) {
-                playerBoard[i][column] = referenceBoard[i][column];
+                put(i, column, referenceBoard[i][column]);
             }
         } else if (type == 4) {
             // clear grid back to original
@@ -261,20 +190,23 @@ public class Game {
             int startCol = (column / 3) * 3;
 
             for (int i = startRow; i < startRow + 3; i++) {
-                System.arraycopy(referenceBoard[i], startCol, playerBoard[i], startCol, startCol + 3 - startCol);
+                for (int j = startCol; j < startCol + 3; j++) {
+                    put(i, j, referenceBoard[i][j]);
+                }
             }
         } else if (type == 5) {
             // clear entire board back to original
             for (int i = 0; i < 9; i++) {
-                System.arraycopy(referenceBoard[i], 0, playerBoard[i], 0, 9);
+                for (int j = 0; j < 9; j++) {
+                    put(i, j, referenceBoard[i][j]);
+                }
             }
         } else if (type == 6) {
             // generate a new board
-            create();
-            prepareForPlay();
+            load(PuzzlePool.shared().take(difficulty));
         } else {
             // not recognized, setting row, col to default
-            playerBoard[row][column] = referenceBoard[row][column];
+            put(row, column, referenceBoard[row][column]);
             resultType = 5; // something was off
 
         }
@@ -282,9 +214,28 @@ public class Game {
         return resultType;
     }
 
+    /**
+     * Checks if value may go into the (empty) cell at row, col, same results as checkMove(row, col)
+     * 0 - ok, 2 - already in row, 3 - already in column, 4 - already in grid
+     * Looks at the row, column and box bitmasks only, no scan and no allocation
+     */
+    public int checkMove(int row, int col, int value) {
+        int digit = 1 << value;
+        if ((rowDigits[row] & digit) != 0) {
+            return 2;
+        } else if ((colDigits[col] & digit) != 0) {
+            return 3;
+        } else if ((boxDigits[box(row, col)] & digit) != 0) {
+            return 4;
+        }
+        return 0;
+    }
+
     /**
      * I never called this separatly from server
      * Checks if the move was valid for setting a number used in previous method
+     * The value has to be on the board already. Scans the row, column and grid, updateBoard uses
+     * checkMove(row, col, value) instead
      */
     public int checkMove(int row, int col){
         if(isExistsInRow(row)){
@@ -301,6 +252,13 @@ public class Game {
      * Method that checks if there is still an X on board, if so return false else true (basically checks if won)
      */
     public boolean checkWon() {
+        return blanks == 0;
+    }
+
+    /**
+     * Same as checkWon, but looks at all 81 cells instead of the blank counter
+     */
+    public boolean checkWonByScan() {
         for (int row = 0; row < playerBoard.length; row++) {
             for (int col = 0; col < playerBoard[row].length; col++) {
                 if (playerBoard[row][col] == 'X') {
@@ -433,6 +391,34 @@ public class Game {
     }
 
     // helper methods
+
+    // the only way the player board is written, keeps the digit masks and the blank count in step
+    private void put(int row, int col, char ch) {
+        char old = playerBoard[row][col];
+        if (old >= '1' && old <= '9') {
+            int digit = ~(1 << (old - '0'));
+            rowDigits[row] &= digit;
+            colDigits[col] &= digit;
+            boxDigits[box(row, col)] &= digit;
+        } else if (old == 'X') {
+            blanks--;
+        }
+        if (ch >= '1' && ch <= '9') {
+            int digit = 1 << (ch - '0');
+            rowDigits[row] |= digit;
+            colDigits[col] |= digit;
+            boxDigits[box(row, col)] |= digit;
+        } else if (ch == 'X') {
+            blanks++;
+        }
+        playerBoard[row][col] = ch;
+    }
+
+    // index of the 3x3 box holding row, col (0 - 8, left to right, top to bottom)
+    private static int box(int row, int col) {
+        return (row / 3) * 3 + col / 3;
+    }
+
     public String getRow(int row) {
         StringBuilder sb = new StringBuilder();
         for (int col = 0; col < 9; col++) {
@@ -0,0 +1,157 @@
+package server;
+
+import java.util.Random;
+
+/**
+ * Class: Generator
+ * Description: Generates Sudoku boards with exactly one solution.
+ * A random solved grid is filled in by a backtracking solver, then cells are blanked in mirrored pairs
+ * (cell and 80 - cell, like the old boards) in random order. A pair only stays blank if the board
+ * still has a single solution, so every puzzle has exactly one answer however many pairs are blanked.
+ * The solver keeps the digits of every row, column and box as bitmasks (bit v for digit v, as in
+ * Game) and always fills the blank with the fewest candidates next, a board takes well under a
+ * millisecond.
+ */
+class Generator {
+
+    static final int MAX_DIFFICULTY = 20; // mirrored pairs, the server accepts 1 - 20
+    private static final int CELLS = 81;
+    private static final int ALL_DIGITS = 0x3FE; // bits 1 - 9
+
+    /**
+     * A generated board, cells are the digits 1 - 9 or 0 for a blank
+     */
+    static final class Puzzle {
+        final int[] solution;
+        final int[] cells;
+
+        Puzzle(int[] solution, int[] cells) {
+            this.solution = solution;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * New puzzle with difficulty mirrored pairs blanked and a unique solution
+     */
+    static Puzzle generate(int difficulty, Random random) {
+        int pairs = Math.max(1, Math.min(MAX_DIFFICULTY, difficulty));
+        while (true) {
+            int[] solution = new int[CELLS];
+            search(solution, 1, random);
+
+            int[] cells = solution.clone();
+            int[] order = shuffledHalf(random);
+            int blanked = 0;
+            for (int i = 0; i < order.length && blanked < pairs; i++) {
+                int cell = order[i];
+                int mirror = CELLS - 1 - cell;
+                cells[cell] = 0;
+                cells[mirror] = 0;
+                if (countSolutions(cells, 2) == 1) {
+                    blanked++;
+                } else {
+                    cells[cell] = solution[cell]; // more than one solution, put the pair back
+                    cells[mirror] = solution[mirror];
+                }
+            }
+            if (blanked == pairs) {
+                return new Puzzle(solution, cells);
+            }
+            // this grid can't lose that many pairs and stay unique, try another one
+        }
+    }
+
+    /**
+     * Number of solutions of cells (0 = blank), counting stops at limit. cells is left as it was
+     * The given digits must not clash with each other, only the blanks are checked
+     */
+    static int countSolutions(int[] cells, int limit) {
+        return search(cells, limit, null);
+    }
+
+    // backtracking over the blank with the fewest candidates. With a random the candidates are tried
+    // in random order and the first solution is left in cells, without one every try is undone
+    private static int search(int[] cells, int limit, Random random) {
+        int[] rows = new int[9];
+        int[] cols = new int[9];
+        int[] boxes = new int[9];
+        for (int i = 0; i < CELLS; i++) {
+            if (cells[i] != 0) {
+                int digit = 1 << cells[i];
+                rows[i / 9] |= digit;
+                cols[i % 9] |= digit;
+                boxes[box(i)] |= digit;
+            }
+        }
+        return search(cells, rows, cols, boxes, limit, random);
+    }
+
+    private static int search(int[] cells, int[] rows, int[] cols, int[] boxes, int limit, Random random) {
+        int best = -1;
+        int bestCandidates = 0;
+        int bestCount = 10;
+        for (int i = 0; i < CELLS && bestCount > 1; i++) {
+            if (cells[i] == 0) {
+                int candidates = ~(rows[i / 9] | cols[i % 9] | boxes[box(i)]) & ALL_DIGITS;
+                int count = Integer.bitCount(candidates);
+                if (count < bestCount) {
+                    best = i;
+                    bestCandidates = candidates;
+                    bestCount = count;
+                }
+            }
+        }
+        if (best < 0) {
+            return 1; // no blank left, one solution
+        }
+
+        int row = best / 9, col = best % 9, box = box(best);
+        int found = 0;
+        while (bestCandidates != 0 && found < limit) {
+            int digit = random == null ? Integer.lowestOneBit(bestCandidates) : randomBit(bestCandidates, random);
+            bestCandidates &= ~digit;
+
+            cells[best] = Integer.numberOfTrailingZeros(digit);
+            rows[row] |= digit;
+            cols[col] |= digit;
+            boxes[box] |= digit;
+            found += search(cells, rows, cols, boxes, limit - found, random);
+            if (random != null && found > 0) {
+                return found; // keep the grid we just filled
+            }
+            cells[best] = 0;
+            rows[row] &= ~digit;
+            cols[col] &= ~digit;
+            boxes[box] &= ~digit;
+        }
+        return found;
+    }
+
+    // one of the set bits of bits, picked at random
+    private static int randomBit(int bits, Random random) {
+        for (int skip = random.nextInt(Integer.bitCount(bits)); skip > 0; skip--) {
+            bits &= bits - 1; // drop the lowest
+        }
+        return Integer.lowestOneBit(bits);
+    }
+
+    // cells 0 - 40 (each with its mirror 80 - cell, 40 is its own mirror) in random order
+    private static int[] shuffledHalf(Random random) {
+        int[] order = new int[CELLS / 2 + 1];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    private static int box(int cell) {
+        return (cell / 27) * 3 + (cell % 9) / 3;
+    }
+}
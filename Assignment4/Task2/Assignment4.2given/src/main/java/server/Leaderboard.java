@@ -0,0 +1,137 @@
+package server;
+
+import buffers.ResponseProtos.Entry;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Class: Leaderboard
+ * Description: In memory leaderboard shared by every session.
+ * Players are kept sorted by points (most first, ties by name) next to their stats, so a
+ * LEADERBOARD request never touches the log file and costs the same however long the log gets.
+ * Filled from the log once at startup, then updated on every login and win.
+ * Updates are serialized, so the players and the ranking are plain collections guarded by the lock.
+ * A win republishes the list right away. A login only changes that player's login count, so it just
+ * marks the list stale and the next read rebuilds it once, however many logins came in between.
+ * Reads take no lock unless the list is stale.
+ */
+class Leaderboard {
+
+    // per player totals
+    static class PlayerStats {
+        final String name;
+        int wins = 0;
+        int logins = 0;
+        int points = 0; // summed over all wins
+
+        PlayerStats(String name) {
+            this.name = name;
+        }
+    }
+
+    // sort key of a player, replaced (not changed) when the player's points change
+    private static final class Rank implements Comparable<Rank> {
+        final int points;
+        final String name;
+
+        Rank(int points, String name) {
+            this.points = points;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(Rank other) {
+            int byPoints = Integer.compare(other.points, points); // most points first
+            return byPoints != 0 ? byPoints : name.compareTo(other.name);
+        }
+    }
+
+    private final Map<String, PlayerStats> players = new HashMap<>(); // guarded by this
+    private final NavigableSet<Rank> ranking = new TreeSet<>(); // guarded by this
+    // the leaderboard as sent to clients, republished after a win or on the first read after logins
+    private volatile List<Entry> entries = Collections.emptyList();
+    private volatile boolean stale = false; // logins since entries was published
+    private boolean loading = false; // publish once after the whole history was replayed
+
+    /**
+     * Replays the history (logins and wins from the log) and publishes the result once
+     */
+    synchronized void load(Consumer<Leaderboard> history) {
+        loading = true;
+        try {
+            history.accept(this);
+        } finally {
+            loading = false;
+            publish();
+        }
+    }
+
+    /**
+     * Counts a login (NAME request) for the player
+     */
+    synchronized void login(String name) {
+        if (name == null || name.isEmpty()) {
+            return; // not a player, SockBaseServer only logs in named sessions
+        }
+        stats(name).logins++;
+        stale = true; // published by the next entries() or win()
+    }
+
+    /**
+     * Records a won game and the points it finished with
+     */
+    synchronized void win(String name, int points) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        PlayerStats player = stats(name);
+        ranking.remove(new Rank(player.points, name));
+        player.wins++;
+        player.points += points;
+        ranking.add(new Rank(player.points, name));
+        if (!loading) {
+            publish();
+        }
+    }
+
+    /**
+     * Everyone on the leaderboard in order, immutable
+     */
+    List<Entry> entries() {
+        if (stale) {
+            synchronized (this) {
+                if (stale) {
+                    publish();
+                }
+            }
+        }
+        return entries;
+    }
+
+    // stats of a player, ranked with 0 points on first sight, caller holds the lock
+    private PlayerStats stats(String name) {
+        PlayerStats player = players.get(name);
+        if (player == null) {
+            player = new PlayerStats(name);
+            players.put(name, player);
+            ranking.add(new Rank(0, name));
+        }
+        return player;
+    }
+
+    // walk the ranking (already sorted) into the entries clients get, caller holds the lock
+    private void publish() {
+        List<Entry> list = new ArrayList<>(ranking.size());
+        for (Rank rank : ranking) {
+            PlayerStats player = players.get(rank.name);
+            list.add(Entry.newBuilder()
+                    .setName(player.name)
+                    .setPoints(player.points)
+                    .setLogins(player.logins)
+                    .build());
+        }
+        entries = Collections.unmodifiableList(list);
+        stale = false;
+    }
+}
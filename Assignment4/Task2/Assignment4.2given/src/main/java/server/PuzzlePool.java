@@ -0,0 +1,85 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class: PuzzlePool
+ * Description: Generated puzzles waiting for players, PER_DIFFICULTY of each difficulty.
+ * Filled when the server starts, after that every take() asks the background "puzzle-pool" thread
+ * for a replacement, so starting a game only takes a ready puzzle from a queue. If a burst of games
+ * empties a queue the puzzle is generated by the caller instead (counted in misses()).
+ */
+class PuzzlePool {
+
+    static final int PER_DIFFICULTY = 16;
+
+    private static PuzzlePool shared;
+
+    private final List<BlockingQueue<Generator.Puzzle>> pools; // by difficulty, 0 is unused
+    private final BlockingQueue<Integer> refills = new LinkedBlockingQueue<>(); // difficulties to generate
+    private final AtomicLong misses = new AtomicLong();
+
+    PuzzlePool(int perDifficulty) {
+        pools = new ArrayList<>(Generator.MAX_DIFFICULTY + 1);
+        pools.add(null);
+        for (int difficulty = 1; difficulty <= Generator.MAX_DIFFICULTY; difficulty++) {
+            BlockingQueue<Generator.Puzzle> pool = new ArrayBlockingQueue<>(perDifficulty);
+            for (int i = 0; i < perDifficulty; i++) {
+                pool.add(Generator.generate(difficulty, ThreadLocalRandom.current()));
+            }
+            pools.add(pool);
+        }
+        Thread refiller = new Thread(this::refill, "puzzle-pool");
+        refiller.setDaemon(true);
+        refiller.start();
+    }
+
+    /**
+     * The pool every game takes its puzzles from, filled on first use
+     */
+    static synchronized PuzzlePool shared() {
+        if (shared == null) {
+            shared = new PuzzlePool(PER_DIFFICULTY);
+        }
+        return shared;
+    }
+
+    /**
+     * A puzzle nobody else gets, difficulty is clamped to 1 - MAX_DIFFICULTY
+     */
+    Generator.Puzzle take(int difficulty) {
+        int pool = Math.max(1, Math.min(Generator.MAX_DIFFICULTY, difficulty));
+        Generator.Puzzle puzzle = pools.get(pool).poll();
+        if (puzzle == null) {
+            misses.incrementAndGet();
+            return Generator.generate(pool, ThreadLocalRandom.current());
+        }
+        refills.add(pool);
+        return puzzle;
+    }
+
+    /**
+     * Puzzles the callers had to generate themselves because the pool was empty
+     */
+    long misses() {
+        return misses.get();
+    }
+
+    // background thread: replace every puzzle taken
+    private void refill() {
+        while (true) {
+            try {
+                int difficulty = refills.take();
+                pools.get(difficulty).offer(Generator.generate(difficulty, ThreadLocalRandom.current()));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
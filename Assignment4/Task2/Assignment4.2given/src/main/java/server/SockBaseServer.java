@@ -4,15 +4,23 @@ import buffers.RequestProtos.*;
 import buffers.ResponseProtos.*;
 
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 class SockBaseServer {
-    private String logFilename = "logs.txt";
+    private static final String logFilename = "logs.pb"; // protobuf event log, see EventLog
+    private static final String scoresFilename = "scores.txt"; // "name : points" per won game
 
     // Please use these as given so it works with our test cases
     static String menuOptions = "\nWhat would you like to do? \n 1 - to see the leader board \n 2 - to enter a game \n 3 - quit the game";
@@ -40,6 +48,22 @@ class SockBaseServer {
 
     private static boolean grading = true; // if the grading board should be used
 
+    // sessions run concurrently, each with its own Game. Log entries go through the log's writer
+    // thread, the scores file is shared and only read or written while holding scoresLock
+    private static EventLog log;
+    private static final Object scoresLock = new Object();
+    // kept in memory, filled from the log at startup, see Leaderboard
+    private static final Leaderboard leaderboard = new Leaderboard();
+    private static final int DEFAULT_THREADS = 32; // players served at once, the rest are told the server is busy
+    // turned away players get their busy error on BUSY_THREADS threads, they have BUSY_TIMEOUT_MS to send
+    // their first request. At most BUSY_QUEUE wait for those threads, anyone beyond that is just hung up on,
+    // so a flood of connections that never send anything can't grow the server's threads
+    private static final int BUSY_THREADS = 2;
+    private static final int BUSY_QUEUE = 64;
+    private static final int BUSY_TIMEOUT_MS = 2_000;
+    private static final ExecutorService turnedAway = new ThreadPoolExecutor(BUSY_THREADS, BUSY_THREADS,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(BUSY_QUEUE));
+
     public SockBaseServer(Socket sock, Game game, int id) {
         this.clientSocket = sock;
         this.game = game;
@@ -65,6 +89,17 @@ class SockBaseServer {
                 boolean quit = false;
 
                 // prefilter
+                if (currentState == STATE_NAME) {
+                    switch (op.getOperationType()) {
+                        case NAME :
+                        case QUIT :
+                            break;
+                        default : // no player yet to log in, start a game for or credit a win to
+                            response = error(4, op.getOperationType().name());
+                            response.writeDelimitedTo(out);
+                            continue;
+                    }
+                }
                 if (currentState == STATE_INGAME) {
                     switch (op.getOperationType()) {
                         case UPDATE :
@@ -134,46 +169,48 @@ class SockBaseServer {
 
     // Leaderboard Logic
     private Response buildLeaderboardResponse() throws IOException {
-        // read logs + aggregate stats
-        Map<String, Integer> scoreMap = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(logFilename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(" : ", 2);
-                if (parts.length != 2) continue;
-                String player = parts[0].trim();
-                try {
-                    int pts = Integer.parseInt(parts[1].trim());
-                    scoreMap.put(player, pts);
-                } catch (NumberFormatException e) {
-                    // skip malformed
-                }
-            }
-        }
-
-        // convert to sorted Entry list
-        List<Entry> entries = scoreMap.entrySet().stream()
-                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
-                .map(e -> Entry.newBuilder()
-                        .setName(e.getKey())
-                        .setLogins(0) // keep ?
-                        .setPoints(e.getValue())
-                        .build())
-                .collect(Collectors.toList());
-
+        // already sorted, nothing is read from the log here
         return Response.newBuilder()
                 .setResponseType(Response.ResponseType.LEADERBOARD)
-                .addAllLeader(entries)
+                .addAllLeader(leaderboard.entries())
                 .setMenuoptions(menuOptions)
                 .setNext(STATE_MENU)  // Return to main menu
                 .build();
     }
 
-    // helper class for stats
-    private static class PlayerStats {
-        int wins = 0;
-        int logins = 0;
-        int points = 0;
+    /**
+     * Fills the leaderboard from the log, once at startup
+     * Logins are the CONNECT entries of the protobuf log, wins the "name : points" lines of the scores file
+     */
+    static void loadLeaderboard() {
+        leaderboard.load(board -> {
+            for (String entry : readLogFile().getLogList()) {
+                // "<date>: <name> - CONNECT"
+                int nameStart = entry.indexOf(": ");
+                int nameEnd = entry.lastIndexOf(" - ");
+                if (nameStart >= 0 && nameEnd > nameStart && entry.endsWith(" - " + Message.CONNECT)) {
+                    board.login(entry.substring(nameStart + 2, nameEnd));
+                }
+            }
+            synchronized (scoresLock) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(scoresFilename))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split(" : ", 2);
+                        if (parts.length != 2) continue;
+                        try {
+                            board.win(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                        } catch (NumberFormatException e) {
+                            // skip malformed
+                        }
+                    }
+                } catch (FileNotFoundException e) {
+                    // no game won yet
+                } catch (IOException e) {
+                    System.out.println("Error reading scores: " + e.getMessage());
+                }
+            }
+        });
     }
 
     // Update Move Logic
@@ -229,14 +266,17 @@ class SockBaseServer {
             game.setPoints(+20);
             // overwrite the response's points field
             response.setPoints(game.getPoints());
-
-            // append points line to same file
-            try (FileWriter fw = new FileWriter(logFilename, true);
-                 BufferedWriter bw = new BufferedWriter(fw);
-                 PrintWriter pw = new PrintWriter(bw)) {
-                pw.printf("%s : %d%n", name, game.getPoints());
-            } catch (IOException e) {
-                System.out.println("Failed to write score log");
+            leaderboard.win(name, game.getPoints());
+
+            // append points line to the scores file, the protobuf log stays pure protobuf
+            synchronized (scoresLock) {
+                try (FileWriter fw = new FileWriter(scoresFilename, true);
+                     BufferedWriter bw = new BufferedWriter(fw);
+                     PrintWriter pw = new PrintWriter(bw)) {
+                    pw.printf("%s : %d%n", name, game.getPoints());
+                } catch (IOException e) {
+                    System.out.println("Failed to write score log");
+                }
             }
 
             inGame = false; // game over
@@ -356,6 +396,7 @@ class SockBaseServer {
         name = op.getName();
 
         writeToLog(name, Message.CONNECT);
+        leaderboard.login(name);
         inGame = false;
         currentState = STATE_MENU;
 
@@ -398,6 +439,9 @@ class SockBaseServer {
             case 3 :
                 message = "\nError: invalid " + field;
                 break;
+            case 4 :
+                message = "\nError: " + field + " is not expected at this point, please send your name first";
+                break;
             case 5 :
                 message = "Error: difficulty must be between 1 and 20";
             default :
@@ -415,72 +459,72 @@ class SockBaseServer {
     
     /**
      * Writing a new entry to our log
+     * The entry is only queued, the log's writer thread appends it to the file
      * @param name - Name of the person logging in
      * @param message - type Message from Protobuf which is the message to be written in the log (e.g. Connect) 
-     * @return String of the new hidden image
      */
     public void writeToLog(String name, Message message) {
-        try {
-            // read old log file
-            Logs.Builder logs = readLogFile();
-
-            Date date = java.util.Calendar.getInstance().getTime();
+        Date date = java.util.Calendar.getInstance().getTime();
 
-            // we are writing a new log entry to our log
-            // add a new log entry to the log list of the Protobuf object
-            logs.addLog(date + ": " +  name + " - " + message);
-
-            // open log file
-            FileOutputStream output = new FileOutputStream(logFilename);
-            Logs logsObj = logs.build();
-
-            // write to log file
-            logsObj.writeTo(output);
-        } catch(Exception e) {
-            System.out.println("Issue while trying to save");
-        }
+        // we are writing a new log entry to our log
+        log.append(date + ": " +  name + " - " + message);
     }
 
     /**
-     * Reading the current log file
-     * @return Logs.Builder a builder of a logs entry from protobuf
+     * Reading the log, all of its files
+     * @return Logs.Builder a builder holding every entry written so far
      */
-    public Logs.Builder readLogFile() throws IOException {
+    public static Logs.Builder readLogFile() {
         Logs.Builder logs = Logs.newBuilder();
-        File logFile = new File(logFilename);
-
-        try {
-            if (logFile.exists()) {
-                logs.mergeFrom(new FileInputStream(logFile));
-            } else {
-                logFile.createNewFile(); // create empty file if missing
-            }
-        } catch (Exception e) {
-            System.out.println("Error reading logs: " + e.getMessage());
-        }
+        log.replay(logs::addLog);
         return logs;
     }
 
     // main entry point
     public static void main (String[] args) throws Exception {
-        if (args.length != 2) {
-            System.out.println("Expected arguments: <port(int)> <delay(int)>");
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Expected arguments: <port(int)> <grading(boolean)> [threads(int), 0 = virtual threads]");
             System.exit(1);
         }
         int port = 8000; // default port
+        int threads = DEFAULT_THREADS;
         grading = Boolean.parseBoolean(args[1]);
         Socket clientSocket = null;
         ServerSocket socket = null;
 
         try {
             port = Integer.parseInt(args[0]);
+            if (args.length == 3) {
+                threads = Integer.parseInt(args[2]);
+            }
         } catch (NumberFormatException nfe) {
-            System.out.println("[Port|sleepDelay] must be an integer");
+            System.out.println("[Port|threads] must be an integer");
+            System.exit(2);
+        }
+        // bounded pool of session threads without a wait queue (a player beyond the limit is turned
+        // away, see busy()), or one virtual thread per player
+        ExecutorService sessions = threads > 0
+                ? new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>())
+                : newVirtualThreadPerTaskExecutor();
+        try {
+            log = new EventLog(logFilename);
+        } catch (IOException e) {
+            System.out.println("Cannot open log " + logFilename + ": " + e.getMessage());
             System.exit(2);
         }
+        // write out what is still queued when the server is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.out.println("Error closing log: " + e.getMessage());
+            }
+        }));
+        loadLeaderboard();
+        PuzzlePool.shared(); // generate the first puzzles now, not when the first player starts a game
         try {
             socket = new ServerSocket(port);
-            System.out.println("Server started..");
+            System.out.println("Server started.. (" + (threads > 0 ? threads + " sessions at once" : "virtual threads") + ")");
         } catch(Exception e) {
             e.printStackTrace();
             System.exit(2);
@@ -490,12 +534,73 @@ class SockBaseServer {
             try {
                 clientSocket = socket.accept();
                 System.out.println("Attempting to connect to client-" + id);
-                Game game = new Game();
+                Game game = new Game(); // every session plays its own game
                 SockBaseServer server = new SockBaseServer(clientSocket, game, id++);
-                server.runGameLoop();
+                // the accept thread goes straight back to accepting
+                try {
+                    sessions.execute(() -> {
+                        try {
+                            server.runGameLoop();
+                        } catch (IOException e) {
+                            System.out.println("Error closing client-" + server.id + ": " + e.getMessage());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    System.out.println("All " + threads + " sessions taken, turning away client-" + server.id);
+                    busy(clientSocket, threads);
+                }
             } catch (Exception e) {
                 System.out.println("Error in accepting client connection.");
             }
         }
     }
+
+    /**
+     * Tells a player that every session is taken and hangs up, instead of leaving them waiting
+     * for a game that may not start for a long time. The client speaks first, so its first request
+     * is read and answered with the error, closing right away would only show it a reset connection
+     */
+    private static void busy(Socket clientSocket, int threads) {
+        try {
+            turnedAway.execute(() -> answerBusy(clientSocket, threads));
+        } catch (RejectedExecutionException e) {
+            try {
+                clientSocket.close(); // even the busy answers are backed up
+            } catch (IOException ex) {
+                System.out.println("Error turning away client: " + ex.getMessage());
+            }
+        }
+    }
+
+    // runs on turnedAway, a client that sends nothing within BUSY_TIMEOUT_MS is hung up on
+    private static void answerBusy(Socket clientSocket, int threads) {
+        try (Socket sock = clientSocket) {
+            sock.setSoTimeout(BUSY_TIMEOUT_MS);
+            Request.parseDelimitedFrom(sock.getInputStream());
+            Response.newBuilder()
+                    .setResponseType(Response.ResponseType.ERROR)
+                    .setErrorType(0)
+                    .setMessage("\nError: server busy, all " + threads + " games are taken, please try again later")
+                    .setNext(STATE_NAME)
+                    .build()
+                    .writeDelimitedTo(sock.getOutputStream());
+        } catch (IOException e) {
+            System.out.println("Error turning away client: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Executor for "-Pthreads=0": a virtual thread per player, so players are only limited by memory.
+     * build.gradle does not require JDK 21, so the factory is looked up at runtime and an older JDK
+     * serves every player on a platform thread of a cached pool instead
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads unavailable (JDK 21+ required), using platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
 }
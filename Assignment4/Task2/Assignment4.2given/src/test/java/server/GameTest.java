@@ -0,0 +1,120 @@
+package server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class: GameTest
+ * Description: Move checks against the row, column and box digit masks of Game, and that the masks
+ * and the blank count follow every clear. Uses the grading board, its blanks (row, col, answer) are
+ * listed in BLANKS.
+ */
+public class GameTest {
+
+    private static final int[][] BLANKS = {{0, 4, 7}, {0, 7, 8}, {1, 5, 2}, {7, 0, 9}, {7, 3, 2}, {8, 1, 5}, {8, 4, 1}};
+
+    private static final String SOLVED =
+            "563179482" +
+            "179482563" +
+            "482563179" +
+            "631794825" +
+            "794825631" +
+            "825631794" +
+            "317948256" +
+            "948256317" +
+            "256317948";
+
+    private Game game;
+
+    @BeforeEach
+    public void setUp() {
+        game = new Game();
+        game.newGame(true, 1); // grading board
+    }
+
+    @Test
+    public void duplicateInRow() {
+        assertEquals(2, game.checkMove(0, 4, 5)); // 5 starts row 0
+        assertEquals(2, game.updateBoard(0, 4, 5, 0));
+        assertEquals('X', cell(0, 4)); // a rejected move leaves the cell blank
+    }
+
+    @Test
+    public void duplicateInColumn() {
+        assertEquals(3, game.checkMove(0, 4, 8)); // row 0 misses 8, column 4 has it
+        assertEquals(3, game.updateBoard(0, 4, 8, 0));
+        assertEquals('X', cell(0, 4));
+    }
+
+    @Test
+    public void duplicateInBox() {
+        // 7 blanked in row 0 and column 0 but not in the top left box, which has it at 1, 1
+        game.load(puzzle(new int[][] {{0, 0}, {0, 4}, {4, 0}}));
+        assertEquals(4, game.checkMove(0, 0, 7));
+        assertEquals(4, game.updateBoard(0, 0, 7, 0));
+        assertEquals(0, game.checkMove(0, 0, 5));
+    }
+
+    @Test
+    public void duplicateFromPlayerMove() {
+        assertEquals(3, game.checkMove(0, 7, 7)); // only column 7 has a 7
+        assertEquals(0, game.updateBoard(0, 4, 7, 0));
+        assertEquals(2, game.checkMove(0, 7, 7)); // now row 0 has the 7 just placed
+    }
+
+    @Test
+    public void masksRestoredAfterEveryClear() {
+        // type: 1 cell, 2 row, 3 column, 4 box, 5 board, all of them cover 0, 4
+        for (int type = 1; type <= 5; type++) {
+            assertEquals(0, game.updateBoard(0, 4, 7, 0));
+            assertEquals(2, game.checkMove(0, 4, 7));
+            assertEquals(0, game.updateBoard(0, 4, 0, type));
+            assertEquals('X', cell(0, 4), "clear type " + type);
+            assertEquals(0, game.checkMove(0, 4, 7), "clear type " + type);
+            assertEquals(0, game.checkMove(8, 4, 1), "clear type " + type);
+        }
+    }
+
+    @Test
+    public void replacingAValueFreesTheOldOne() {
+        assertEquals(0, game.updateBoard(0, 4, 7, 0));
+        assertEquals(3, game.updateBoard(0, 4, 8, 0)); // rejected, the 7 is gone as well
+        assertEquals(0, game.checkMove(0, 4, 7));
+        assertEquals(0, game.updateBoard(0, 7, 8, 0));
+    }
+
+    @Test
+    public void wonOnlyWithEveryBlankFilled() {
+        for (int[] blank : BLANKS) {
+            assertFalse(game.checkWon());
+            assertEquals(0, game.updateBoard(blank[0], blank[1], blank[2], 0));
+        }
+        assertTrue(game.checkWon());
+        assertTrue(game.checkWonByScan());
+
+        assertEquals(0, game.updateBoard(0, 0, 0, 5)); // clear the board
+        assertFalse(game.checkWon());
+        assertFalse(game.checkWonByScan());
+        for (int[] blank : BLANKS) {
+            assertEquals(0, game.checkMove(blank[0], blank[1], blank[2]));
+        }
+    }
+
+    // the solved grading board with the given cells blanked
+    private static Generator.Puzzle puzzle(int[][] blanks) {
+        int[] solution = new int[81];
+        for (int i = 0; i < 81; i++) {
+            solution[i] = SOLVED.charAt(i) - '0';
+        }
+        int[] cells = solution.clone();
+        for (int[] blank : blanks) {
+            cells[blank[0] * 9 + blank[1]] = 0;
+        }
+        return new Generator.Puzzle(solution, cells);
+    }
+
+    private char cell(int row, int col) {
+        return game.getBoard().charAt(row * 10 + col); // 9 cells and a newline per row
+    }
+}
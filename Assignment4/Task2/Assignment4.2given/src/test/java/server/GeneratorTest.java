@@ -0,0 +1,77 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+/**
+ * Class: GeneratorTest
+ * Description: Every generated board has exactly one solution, agrees with it, and has the number
+ * of clues its difficulty asks for (difficulty mirrored pairs blanked, the center cell is its own mirror).
+ */
+public class GeneratorTest {
+
+    private static final int BOARDS_PER_DIFFICULTY = 5;
+
+    @Test
+    public void everyBoardHasOneSolutionAndTheRightClues() {
+        Random random = new Random(42); // fixed seed, a failure can be reproduced
+        for (int difficulty = 1; difficulty <= Generator.MAX_DIFFICULTY; difficulty++) {
+            for (int i = 0; i < BOARDS_PER_DIFFICULTY; i++) {
+                Generator.Puzzle puzzle = Generator.generate(difficulty, random);
+                String board = "difficulty " + difficulty + " board " + i;
+
+                int clues = 0;
+                for (int cell = 0; cell < 81; cell++) {
+                    assertEquals(puzzle.cells[cell] == 0, puzzle.cells[80 - cell] == 0, board + " mirrored blanks");
+                    if (puzzle.cells[cell] != 0) {
+                        clues++;
+                        assertEquals(puzzle.solution[cell], puzzle.cells[cell], board + " clue differs from the solution");
+                    }
+                }
+                int blanks = puzzle.cells[40] == 0 ? 2 * difficulty - 1 : 2 * difficulty;
+                assertEquals(81 - blanks, clues, board + " clues");
+
+                assertTrue(isSolved(puzzle.solution), board + " solution");
+                assertEquals(1, Generator.countSolutions(puzzle.cells.clone(), 2), board + " solutions");
+            }
+        }
+    }
+
+    @Test
+    public void outOfRangeDifficultyIsClamped() {
+        Random random = new Random(7);
+        int easiest = clues(Generator.generate(0, random)); // one pair, or only the center
+        assertTrue(easiest == 79 || easiest == 80, "difficulty 0 clues " + easiest);
+        int hardest = clues(Generator.generate(99, random)); // MAX_DIFFICULTY pairs
+        assertTrue(hardest == 81 - 2 * Generator.MAX_DIFFICULTY || hardest == 81 - 2 * Generator.MAX_DIFFICULTY + 1,
+                "difficulty 99 clues " + hardest);
+    }
+
+    // every row, column and 3x3 box holds 1 - 9 once
+    private static boolean isSolved(int[] cells) {
+        for (int unit = 0; unit < 9; unit++) {
+            int row = 0, col = 0, box = 0;
+            for (int i = 0; i < 9; i++) {
+                row |= 1 << cells[unit * 9 + i];
+                col |= 1 << cells[i * 9 + unit];
+                box |= 1 << cells[(unit / 3 * 3 + i / 3) * 9 + unit % 3 * 3 + i % 3];
+            }
+            if (row != 0x3FE || col != 0x3FE || box != 0x3FE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int clues(Generator.Puzzle puzzle) {
+        int clues = 0;
+        for (int cell : puzzle.cells) {
+            if (cell != 0) {
+                clues++;
+            }
+        }
+        return clues;
+    }
+}
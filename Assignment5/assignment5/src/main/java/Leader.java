@@ -75,6 +75,9 @@ class Leader {
             } else if (type.equals("client_request")) {
                 handleClientRequest(json, out);
                 socket.close();
+                if (NetworkUtils.DEBUG) {
+                    System.out.println("Client disconnected : " + NetworkUtils.metrics());
+                }
             } else {
                 socket.close();
             }
@@ -80,6 +80,9 @@ class Nodes {
                     System.out.println("Unknown type: " + type);
                 }
             }
+            if (NetworkUtils.DEBUG) {
+                System.out.println("Leader disconnected : " + NetworkUtils.metrics());
+            }
         } catch (Exception e) {
             System.err.println("Node error : " + e.getMessage());
             e.printStackTrace();